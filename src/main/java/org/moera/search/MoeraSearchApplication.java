@@ -18,6 +18,7 @@ import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation.Bean;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.core.task.TaskExecutor;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
@@ -70,9 +71,20 @@ public class MoeraSearchApplication implements WebMvcConfigurer {
 
     @Bean
     public TaskExecutor jobTaskExecutor() {
+        if (config.getPools().isJobVirtual()) {
+            return buildVirtualTaskExecutor("job");
+        }
         return buildTaskExecutor(config.getPools().getJob(), "job");
     }
 
+    @Bean
+    public TaskExecutor bulkJobTaskExecutor() {
+        if (config.getPools().isJobVirtual()) {
+            return buildVirtualTaskExecutor("bulk-job");
+        }
+        return buildTaskExecutor(config.getPools().getJobBulk(), "bulk-job");
+    }
+
     private ThreadPoolTaskExecutor buildTaskExecutor(int size, String threadName) {
         ThreadPoolTaskExecutor taskExecutor = new ThreadPoolTaskExecutor();
         taskExecutor.setCorePoolSize(size);
@@ -81,6 +93,12 @@ public class MoeraSearchApplication implements WebMvcConfigurer {
         return taskExecutor;
     }
 
+    private SimpleAsyncTaskExecutor buildVirtualTaskExecutor(String threadName) {
+        SimpleAsyncTaskExecutor taskExecutor = new SimpleAsyncTaskExecutor(threadName + "-");
+        taskExecutor.setVirtualThreads(true);
+        return taskExecutor;
+    }
+
     @Override
     public void addInterceptors(InterceptorRegistry registry) {
         registry.addInterceptor(requestRateInterceptor).order(-3);
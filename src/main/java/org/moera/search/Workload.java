@@ -5,10 +5,20 @@ import java.time.temporal.ChronoUnit;
 
 public class Workload {
 
-    public static final String NAMING_CACHE_PURGE_PERIOD = "PT1M";
+    public static final int JOBS_LOAD_PAGE_SIZE = 1000;
+    public static final int JOBS_MAX_LOADED = 10000;
+    public static final String JOBS_LOAD_RESUME_PERIOD = "PT1M";
+    public static final Duration JOBS_TIMER_TICK = Duration.of(10, ChronoUnit.MILLIS);
+
+    public static final int NAMING_CACHE_MAX_SIZE = 100000;
+    public static final String NAMING_CACHE_SAVE_PERIOD = "PT10M";
     public static final Duration NAMING_CACHE_NORMAL_TTL = Duration.of(6, ChronoUnit.HOURS);
     public static final Duration NAMING_CACHE_ERROR_TTL = Duration.of(1, ChronoUnit.MINUTES);
 
+    public static final String NODE_RATE_LIMITER_PURGE_PERIOD = "PT1M";
+
+    public static final String CARTE_CACHE_PURGE_PERIOD = "PT10M";
+
     public static final String MEDIA_FILES_PURGE_PERIOD = "PT6H";
     public static final Duration MEDIA_FILES_TTL = Duration.of(3, ChronoUnit.HOURS);
 
@@ -28,6 +38,11 @@ public class Workload {
 
     public static final int UPDATE_QUEUE_JOB_START_PERIOD = 15000; // ms
     public static final int UPDATE_QUEUE_MAX_STARTED_JOBS = 100;
+    public static final int UPDATE_QUEUE_WRITE_PERIOD = 1000; // ms
+    public static final int UPDATE_QUEUE_LOAD_PAGE_SIZE = 1000;
+    public static final int UPDATE_QUEUE_MAX_LOADED = 20000;
+
+    public static final int NODE_INGEST_BATCH_SIZE = 500;
 
     public static final String FAVORS_PURGE_PERIOD = "PT1H";
 
@@ -1,18 +1,29 @@
 package org.moera.search.api;
 
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
 import java.time.Instant;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import jakarta.inject.Inject;
 
 import org.moera.lib.jsonrpc.OkHttpJsonRpcFetcher;
 import org.moera.lib.naming.MoeraNaming;
 import org.moera.lib.naming.NodeName;
 import org.moera.lib.naming.types.RegisteredNameInfo;
+import org.moera.lib.util.LogUtil;
 import org.moera.search.Workload;
 import org.moera.search.config.Config;
 import org.moera.search.global.RequestCounter;
@@ -22,25 +33,46 @@ import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.core.task.TaskExecutor;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.util.ObjectUtils;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.ObjectMapper;
 
+// Every name has its own record, the first query of the name is waited for by the callers of this name only.
+// A record is refreshed in background when it is accessed close to its deadline, the old details are served
+// meanwhile. When the cache is full, a portion of the least recently accessed records is evicted at once, so
+// the access time is updated without locking. The resolved names are saved to the media directory
+// periodically and at shutdown, so the cache is warm after restart.
 @Service
 public class NamingCache {
 
     private static final class Record {
 
-        public Instant accessed = Instant.now();
-        public Instant deadline;
-        public RegisteredNameDetails details;
-        private Throwable error;
+        public volatile Instant accessed = Instant.now();
+        public volatile Instant refreshAt;
+        public volatile Instant deadline;
+        public volatile RegisteredNameDetails details;
+        public volatile Throwable error;
+        public final CompletableFuture<Void> resolved = new CompletableFuture<>();
+        public final AtomicBoolean querying = new AtomicBoolean();
 
     }
 
+    private record Snapshot(String name, String nodeName, String nodeUri, byte[] signingKey, long deadline) {
+    }
+
+    private record Candidate(String name, Record record, Instant accessed) {
+    }
+
     private static final Logger log = LoggerFactory.getLogger(NamingCache.class);
 
+    private static final double TTL_JITTER = 0.1; // fraction of TTL
+    private static final double REFRESH_AHEAD = 0.2; // fraction of TTL
+    private static final double EVICTION_PORTION = 0.1; // fraction of the maximal size
+    private static final String SNAPSHOT_FILE_NAME = "naming-cache.json";
+
     private MoeraNaming naming;
-    private final ReadWriteLock cacheLock = new ReentrantReadWriteLock();
-    private final Map<String, Record> cache = new HashMap<>();
-    private final Object queryDone = new Object();
+    private final Map<String, Record> cache = new ConcurrentHashMap<>();
+    private final AtomicBoolean evicting = new AtomicBoolean();
 
     @Inject
     private Config config;
@@ -48,6 +80,9 @@ public class NamingCache {
     @Inject
     private RequestCounter requestCounter;
 
+    @Inject
+    private ObjectMapper objectMapper;
+
     @Inject
     @Qualifier("namingTaskExecutor")
     private TaskExecutor taskExecutor;
@@ -55,144 +90,196 @@ public class NamingCache {
     @PostConstruct
     public void init() {
         naming = new MoeraNaming(new OkHttpJsonRpcFetcher(config.getNamingServer()));
+        load();
     }
 
     public RegisteredNameDetails getFast(String name) {
-        RegisteredNameDetails details = getOrRun(name);
+        RegisteredNameDetails details = getDetails(getOrRun(name));
         return details != null
             ? details.clone()
             : new RegisteredNameDetails(name, null, null);
     }
 
     public RegisteredNameDetails get(String name) {
-        RegisteredNameDetails details = getOrRun(name);
-        if (details != null) {
-            return details.clone();
+        Record record = getOrRun(name);
+        record.resolved.join();
+        return getDetails(record).clone();
+    }
+
+    private static RegisteredNameDetails getDetails(Record record) {
+        if (record.error != null) {
+            throw new NamingNotAvailableException(record.error);
         }
-        synchronized (queryDone) {
-            while (true) {
-                Record record = readRecord(name);
-                if (record != null) {
-                    if (record.error != null) {
-                        throw new NamingNotAvailableException(record.error);
-                    }
-                    if (record.details != null) {
-                        return record.details.clone();
-                    }
-                }
-                try {
-                    queryDone.wait();
-                } catch (InterruptedException e) {
-                    // ignore
-                }
+        return record.details;
+    }
+
+    private Record getOrRun(String name) {
+        Instant now = Instant.now();
+        Record record = cache.get(name);
+        if (record == null || isObsolete(record, now)) {
+            Record created = new Record();
+            record = cache.compute(name, (key, current) ->
+                current == null || isObsolete(current, now) ? created : current
+            );
+            if (record == created) {
+                run(name, record);
+                evictIfFull();
+                return record;
             }
         }
+        record.accessed = now;
+        if (record.refreshAt != null && now.isAfter(record.refreshAt)) {
+            run(name, record);
+        }
+        return record;
     }
 
-    private Record readRecord(String name) {
-        cacheLock.readLock().lock();
-        try {
-            return cache.get(name);
-        } finally {
-            cacheLock.readLock().unlock();
-        }
+    // Expired records that were not accessed for a long time are not worth refreshing
+    private static boolean isObsolete(Record record, Instant now) {
+        return record.deadline != null
+            && record.deadline.isBefore(now)
+            && record.accessed.plus(Workload.NAMING_CACHE_NORMAL_TTL).isBefore(now);
     }
 
-    private RegisteredNameDetails getOrRun(String name) {
-        Record record = readRecord(name);
-        if (record == null) {
-            cacheLock.writeLock().lock();
-            try {
-                record = cache.get(name);
-                if (record == null) {
-                    cache.put(name, new Record());
-                    run(name);
-                    return null;
-                }
-            } finally {
-                cacheLock.writeLock().unlock();
-            }
+    private void evictIfFull() {
+        if (cache.size() <= Workload.NAMING_CACHE_MAX_SIZE || !evicting.compareAndSet(false, true)) {
+            return;
         }
-        record.accessed = Instant.now();
-        if (record.error != null) {
-            throw new NamingNotAvailableException(record.error);
-        } else if (record.details != null) {
-            return record.details.clone();
-        } else {
-            return null;
+        try {
+            // Access times are copied, because they may change while sorting
+            int count = cache.size() - Workload.NAMING_CACHE_MAX_SIZE
+                + (int) (Workload.NAMING_CACHE_MAX_SIZE * EVICTION_PORTION);
+            cache.entrySet().stream()
+                .map(entry -> new Candidate(entry.getKey(), entry.getValue(), entry.getValue().accessed))
+                .sorted(Comparator.comparing(Candidate::accessed))
+                .limit(count)
+                .forEach(candidate -> cache.remove(candidate.name(), candidate.record()));
+        } finally {
+            evicting.set(false);
         }
     }
 
-    private void run(String name) {
-        taskExecutor.execute(() -> queryName(name));
+    private void run(String name, Record record) {
+        if (record.querying.compareAndSet(false, true)) {
+            taskExecutor.execute(() -> queryName(name, record));
+        }
     }
 
-    private void queryName(String name) {
-        NodeName registeredName = NodeName.parse(name);
+    private void queryName(String name, Record record) {
+        NodeName registeredName = null;
         RegisteredNameInfo info = null;
         Throwable error = null;
         try {
+            registeredName = NodeName.parse(name);
             info = naming.getCurrent(registeredName.getName(), registeredName.getGeneration());
         } catch (Exception e) {
             error = e;
         }
-        Record record = readRecord(name);
-        if (record == null) {
-            record = new Record();
-            cacheLock.writeLock().lock();
-            try {
-                cache.put(name, record);
-                if (registeredName.getGeneration() == 0) {
-                    if (name.equals(registeredName.getName())) {
-                        cache.put(registeredName.toString(), record);
-                    } else {
-                        cache.put(registeredName.getName(), record);
-                    }
-                }
-            } finally {
-                cacheLock.writeLock().unlock();
+
+        Duration ttl;
+        if (error == null) {
+            record.details = info == null ? new RegisteredNameDetails() : new RegisteredNameDetails(info);
+            record.error = null;
+            ttl = Workload.NAMING_CACHE_NORMAL_TTL;
+        } else if (record.details != null && record.error == null) {
+            // Keep serving the details we know until the naming server is back
+            log.debug("Error refreshing name {}, keeping the cached details: {}",
+                LogUtil.format(name), error.getMessage());
+            ttl = Workload.NAMING_CACHE_ERROR_TTL;
+        } else {
+            record.details = new RegisteredNameDetails();
+            record.error = error;
+            ttl = Workload.NAMING_CACHE_ERROR_TTL;
+        }
+        long ttlMillis = ttl.toMillis();
+        long jitter = (long) (ttlMillis * TTL_JITTER * ThreadLocalRandom.current().nextDouble());
+        Instant now = Instant.now();
+        record.deadline = now.plusMillis(ttlMillis - jitter);
+        record.refreshAt = record.deadline.minusMillis((long) (ttlMillis * REFRESH_AHEAD));
+        record.querying.set(false);
+        record.resolved.complete(null);
+
+        if (registeredName != null && registeredName.getGeneration() == 0) {
+            String alias = name.equals(registeredName.getName()) ? registeredName.toString() : registeredName.getName();
+            if (cache.putIfAbsent(alias, record) == null) {
+                evictIfFull();
             }
         }
-        record.details = info == null ? new RegisteredNameDetails() : new RegisteredNameDetails(info);
-        record.error = error;
-        record.deadline = Instant.now().plus(
-            error == null ? Workload.NAMING_CACHE_NORMAL_TTL : Workload.NAMING_CACHE_ERROR_TTL
-        );
-        synchronized (queryDone) {
-            queryDone.notifyAll();
+    }
+
+    private Path getSnapshotPath() {
+        if (ObjectUtils.isEmpty(config.getMedia().getPath())) {
+            return null;
         }
+        return FileSystems.getDefault().getPath(config.getMedia().getPath(), SNAPSHOT_FILE_NAME);
     }
 
-    @Scheduled(fixedDelayString = Workload.NAMING_CACHE_PURGE_PERIOD)
-    public void purge() {
-        try (var ignored = requestCounter.allot()) {
-            log.debug("Purging naming cache");
-
-            List<String> remove;
-            cacheLock.readLock().lock();
-            try {
-                remove = cache.entrySet().stream()
-                    .filter(e -> e.getValue().deadline != null && e.getValue().deadline.isBefore(Instant.now()))
-                    .map(Map.Entry::getKey)
-                    .toList();
-            } finally {
-                cacheLock.readLock().unlock();
+    private void load() {
+        Path path = getSnapshotPath();
+        if (path == null || !Files.exists(path)) {
+            return;
+        }
+        Snapshot[] snapshots;
+        try {
+            snapshots = objectMapper.readValue(Files.readAllBytes(path), Snapshot[].class);
+        } catch (IOException | JacksonException e) {
+            log.warn("Cannot load naming cache from {}: {}", path, e.getMessage());
+            return;
+        }
+
+        // Expired records are not trusted, the signing keys might have changed since; the others are served
+        // and refreshed when accessed
+        Instant now = Instant.now();
+        long refreshAheadMillis = (long) (Workload.NAMING_CACHE_NORMAL_TTL.toMillis() * REFRESH_AHEAD);
+        int count = 0;
+        for (Snapshot snapshot : snapshots) {
+            Instant deadline = Instant.ofEpochMilli(snapshot.deadline());
+            if (!deadline.isAfter(now) || count >= Workload.NAMING_CACHE_MAX_SIZE) {
+                continue;
             }
-            if (!remove.isEmpty()) {
-                cacheLock.writeLock().lock();
-                try {
-                    remove.forEach(key -> {
-                        if (cache.get(key).accessed.plus(Workload.NAMING_CACHE_NORMAL_TTL).isAfter(Instant.now())) {
-                            run(key);
-                        } else {
-                            cache.remove(key);
-                        }
-                    });
-                } finally {
-                    cacheLock.writeLock().unlock();
-                }
+            Record record = new Record();
+            record.details = new RegisteredNameDetails(snapshot.nodeName(), snapshot.nodeUri(), snapshot.signingKey());
+            record.deadline = deadline;
+            record.refreshAt = deadline.minusMillis(refreshAheadMillis);
+            record.resolved.complete(null);
+            if (cache.putIfAbsent(snapshot.name(), record) == null) {
+                count++;
             }
         }
+        log.info("Loaded {} names to naming cache", count);
+    }
+
+    @Scheduled(fixedDelayString = Workload.NAMING_CACHE_SAVE_PERIOD)
+    public void save() {
+        Path path = getSnapshotPath();
+        if (path == null) {
+            return;
+        }
+        try (var ignored = requestCounter.allot()) {
+            List<Snapshot> snapshots = new ArrayList<>();
+            cache.forEach((name, record) -> {
+                RegisteredNameDetails details = record.details;
+                Instant deadline = record.deadline;
+                if (record.error == null && details != null && deadline != null) {
+                    snapshots.add(new Snapshot(
+                        name, details.getNodeName(), details.getNodeUri(), details.getSigningKey(),
+                        deadline.toEpochMilli()
+                    ));
+                }
+            });
+            log.debug("Saving {} names from naming cache", snapshots.size());
+
+            Path tmpPath = path.resolveSibling(SNAPSHOT_FILE_NAME + ".tmp");
+            Files.write(tmpPath, objectMapper.writeValueAsBytes(snapshots));
+            Files.move(tmpPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | JacksonException e) {
+            log.warn("Cannot save naming cache to {}: {}", path, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        save();
     }
 
 }
@@ -1,36 +1,71 @@
 package org.moera.search.api;
 
+import java.time.Duration;
 import jakarta.inject.Inject;
 
 import org.moera.lib.http.OkHttpTransport;
 import org.moera.lib.node.MoeraNode;
+import org.moera.lib.node.exception.MoeraNodeException;
 import org.moera.search.util.UriUtil;
 import org.springframework.stereotype.Service;
 
 @Service
 public class NodeApi {
 
+    public interface Request<T> {
+
+        T call(MoeraNode node) throws MoeraNodeException;
+
+    }
+
+    // Shared by all clients, so connections to the nodes are reused
+    private final OkHttpTransport transport = new OkHttpTransport();
+
     @Inject
     private NamingCache namingCache;
 
+    @Inject
+    private NodeRateLimiter nodeRateLimiter;
+
+    @Inject
+    private NodeHealth nodeHealth;
+
     private String fetchNodeUri(String remoteNodeName) {
         RegisteredNameDetails details = namingCache.get(remoteNodeName);
         return details != null ? UriUtil.normalize(details.getNodeUri()) : null;
     }
 
-    public MoeraNode at(String remoteNodeName) throws MoeraNodeUnknownNameException {
+    // Makes a single request to the node
+    public <T> T call(String remoteNodeName, Request<T> request) throws MoeraNodeException {
+        return call(remoteNodeName, null, request);
+    }
+
+    // Makes a single request to the node, authenticated with the carte, if it is not null
+    public <T> T call(String remoteNodeName, String carte, Request<T> request) throws MoeraNodeException {
         String nodeUri = fetchNodeUri(remoteNodeName);
         if (nodeUri == null) {
             throw new MoeraNodeUnknownNameException(remoteNodeName);
         }
-        return new MoeraNode(new OkHttpTransport(), nodeUri);
-    }
+        MoeraNode node = new MoeraNode(transport, nodeUri);
+        if (carte != null) {
+            node.carte(carte);
+            node.auth();
+        }
 
-    public MoeraNode at(String remoteNodeName, String carte) throws MoeraNodeUnknownNameException {
-        MoeraNode node = at(remoteNodeName);
-        node.carte(carte);
-        node.auth();
-        return node;
+        nodeRateLimiter.acquire(remoteNodeName);
+        long startedAt = System.nanoTime();
+        NodeHealth.Outcome outcome = NodeHealth.Outcome.SUCCESS;
+        try {
+            return request.call(node);
+        } catch (MoeraNodeException | RuntimeException e) {
+            outcome = NodeHealth.getOutcome(e);
+            throw e;
+        } finally {
+            if (outcome == NodeHealth.Outcome.SUCCESS) {
+                nodeHealth.responded(Duration.ofNanos(System.nanoTime() - startedAt));
+            }
+            nodeRateLimiter.report(remoteNodeName, outcome);
+        }
     }
 
 }
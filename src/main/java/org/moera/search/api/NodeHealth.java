@@ -0,0 +1,236 @@
+package org.moera.search.api;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.moera.lib.node.exception.MoeraNodeApiAuthenticationException;
+import org.moera.lib.node.exception.MoeraNodeApiNotFoundException;
+import org.moera.lib.node.exception.MoeraNodeApiOperationException;
+import org.moera.lib.node.exception.MoeraNodeApiValidationException;
+import org.moera.lib.node.exception.MoeraNodeException;
+import org.moera.lib.util.LogUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+// Health of remote nodes, shared by all jobs. When too many requests to a node fail, the circuit is opened
+// and the jobs targeting the node are postponed without making requests. After that, a few jobs are admitted
+// to probe the node, and the number of admitted jobs grows while they succeed. Slow responses are counted
+// as errors: the moving average of the request latency of every unhealthy node is tracked. Nodes asking
+// to slow down are not unhealthy, NodeRateLimiter lowers the request rate to them.
+@Service
+public class NodeHealth {
+
+    public enum Outcome {
+        SUCCESS, ERROR, TOO_MANY, NEUTRAL
+    }
+
+    private enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private static final class Health {
+
+        public State state = State.CLOSED;
+        public int samples;
+        public int errors;
+        public Instant openUntil;
+        public Duration openPeriod = MIN_OPEN_PERIOD;
+        public int probesAllowed;
+        public int probesRunning;
+        public int probesSucceeded;
+        public double latency; // ms, moving average
+
+    }
+
+    // Responses of a node received by the current thread since it was admitted
+    private static final class Series {
+
+        public long latency; // ns, total
+        public int responses;
+
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(NodeHealth.class);
+
+    private static final int WINDOW = 20;
+    private static final int MIN_SAMPLES = 10;
+    private static final double MAX_ERROR_RATE = 0.5;
+    private static final Duration MIN_OPEN_PERIOD = Duration.ofMinutes(1);
+    private static final Duration MAX_OPEN_PERIOD = Duration.ofHours(1);
+    private static final Duration PROBE_WAIT_PERIOD = Duration.ofSeconds(15);
+    private static final int MAX_PROBES = 16;
+    private static final Duration SLOW_REQUEST = Duration.ofSeconds(10);
+    private static final double LATENCY_WEIGHT = 0.3;
+
+    private final Map<String, Health> nodes = new ConcurrentHashMap<>();
+    private final ThreadLocal<Series> series = new ThreadLocal<>();
+
+    // Returns null if a request to the node may be made, or the moment to try again
+    public Instant admit(String nodeName) {
+        if (nodeName == null) {
+            return null;
+        }
+        series.set(new Series());
+        Health health = nodes.get(nodeName);
+        if (health == null) {
+            return null;
+        }
+        synchronized (health) {
+            switch (health.state) {
+                case CLOSED:
+                    return null;
+                case OPEN:
+                    if (Instant.now().isBefore(health.openUntil)) {
+                        return jitter(health.openUntil, health.openPeriod);
+                    }
+                    log.info("Probing node {}", LogUtil.format(nodeName));
+                    health.state = State.HALF_OPEN;
+                    health.probesAllowed = 1;
+                    health.probesRunning = 0;
+                    health.probesSucceeded = 0;
+                    // fall through
+                case HALF_OPEN:
+                    if (health.probesRunning >= health.probesAllowed) {
+                        return jitter(Instant.now().plus(PROBE_WAIT_PERIOD), PROBE_WAIT_PERIOD);
+                    }
+                    health.probesRunning++;
+                    return null;
+            }
+        }
+        return null;
+    }
+
+    // Must be called after every successful request to a node with its round trip time
+    public void responded(Duration latency) {
+        Series current = series.get();
+        if (current != null) {
+            current.latency += latency.toNanos();
+            current.responses++;
+        }
+    }
+
+    // Must be called after every admitted request (or a series of requests)
+    public void report(String nodeName, Outcome outcome) {
+        Series current = series.get();
+        series.remove();
+        if (nodeName == null) {
+            return;
+        }
+        // Average round trip time of the requests in the series
+        long latency = current != null && current.responses > 0
+            ? current.latency / current.responses / 1_000_000
+            : -1;
+        boolean slow = outcome == Outcome.SUCCESS && latency > SLOW_REQUEST.toMillis();
+        Health health = outcome == Outcome.ERROR || slow
+            ? nodes.computeIfAbsent(nodeName, k -> new Health())
+            : nodes.get(nodeName);
+        if (health == null) {
+            return;
+        }
+        synchronized (health) {
+            if (outcome == Outcome.SUCCESS && latency >= 0) {
+                health.latency = health.latency > 0
+                    ? health.latency + LATENCY_WEIGHT * (latency - health.latency)
+                    : latency;
+                if (health.latency > SLOW_REQUEST.toMillis()) {
+                    // The node responds, but too slowly
+                    outcome = Outcome.ERROR;
+                }
+            }
+            switch (health.state) {
+                case CLOSED -> reportClosed(nodeName, health, outcome);
+                case HALF_OPEN -> reportHalfOpen(nodeName, health, outcome);
+                case OPEN -> {
+                    // Requests admitted before opening the circuit, nothing to learn from them
+                }
+            }
+        }
+    }
+
+    public static Outcome getOutcome(Throwable e) {
+        if (e instanceof MoeraNodeUncheckedException ex) {
+            e = ex.getException();
+        }
+        if (e instanceof MoeraNodeUnknownNameException) {
+            return Outcome.NEUTRAL;
+        }
+        if (e instanceof MoeraNodeApiOperationException ex && ex.getErrorCode().equals("ask.too-many")) {
+            return Outcome.TOO_MANY;
+        }
+        if (e instanceof MoeraNodeApiValidationException
+                || e instanceof MoeraNodeApiAuthenticationException
+                || e instanceof MoeraNodeApiNotFoundException
+                || e instanceof MoeraNodeApiOperationException) {
+            // The node is responding
+            return Outcome.SUCCESS;
+        }
+        return e instanceof MoeraNodeException ? Outcome.ERROR : Outcome.NEUTRAL;
+    }
+
+    private void reportClosed(String nodeName, Health health, Outcome outcome) {
+        if (outcome == Outcome.NEUTRAL || outcome == Outcome.TOO_MANY) {
+            return;
+        }
+        if (health.samples >= WINDOW) {
+            health.samples /= 2;
+            health.errors /= 2;
+        }
+        health.samples++;
+        if (outcome == Outcome.ERROR) {
+            health.errors++;
+        }
+        if (health.samples >= MIN_SAMPLES && health.errors >= health.samples * MAX_ERROR_RATE) {
+            open(nodeName, health, health.openPeriod);
+            health.openPeriod = min(health.openPeriod.multipliedBy(2), MAX_OPEN_PERIOD);
+        } else if (health.errors == 0) {
+            nodes.remove(nodeName, health);
+        }
+    }
+
+    private void reportHalfOpen(String nodeName, Health health, Outcome outcome) {
+        health.probesRunning = Math.max(health.probesRunning - 1, 0);
+        switch (outcome) {
+            case SUCCESS -> {
+                health.probesSucceeded++;
+                if (health.probesSucceeded >= health.probesAllowed) {
+                    if (health.probesAllowed >= MAX_PROBES) {
+                        log.info("Node {} is healthy again", LogUtil.format(nodeName));
+                        nodes.remove(nodeName, health);
+                        return;
+                    }
+                    health.probesAllowed *= 2;
+                    health.probesSucceeded = 0;
+                }
+            }
+            case ERROR -> {
+                open(nodeName, health, health.openPeriod);
+                health.openPeriod = min(health.openPeriod.multipliedBy(2), MAX_OPEN_PERIOD);
+            }
+            case TOO_MANY, NEUTRAL -> {
+            }
+        }
+    }
+
+    private void open(String nodeName, Health health, Duration period) {
+        log.info("Node {} is unhealthy, suspending requests for {}s", LogUtil.format(nodeName), period.toSeconds());
+        health.state = State.OPEN;
+        health.openUntil = Instant.now().plus(period);
+        health.samples = 0;
+        health.errors = 0;
+    }
+
+    // Postponed jobs should not return all at the same moment
+    private static Instant jitter(Instant at, Duration period) {
+        long maxJitter = Math.max(period.toMillis() / 10, 1);
+        return at.plusMillis(ThreadLocalRandom.current().nextLong(maxJitter));
+    }
+
+    private static Duration min(Duration a, Duration b) {
+        return a.compareTo(b) <= 0 ? a : b;
+    }
+
+}
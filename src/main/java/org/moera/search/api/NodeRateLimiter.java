@@ -0,0 +1,114 @@
+package org.moera.search.api;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.moera.lib.util.LogUtil;
+import org.moera.search.Workload;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+// Token bucket for every remote node. The rate grows slowly while requests succeed and is halved every time
+// the node asks to slow down.
+@Service
+public class NodeRateLimiter {
+
+    private static final class Bucket {
+
+        public double rate = INITIAL_RATE; // requests per second
+        public double tokens = INITIAL_RATE;
+        public long refilledAt = System.nanoTime();
+        public Instant accessed = Instant.now();
+
+        public void refill() {
+            long now = System.nanoTime();
+            tokens = Math.min(tokens + (now - refilledAt) * rate / 1e9, Math.max(rate, 1));
+            refilledAt = now;
+        }
+
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(NodeRateLimiter.class);
+
+    private static final double INITIAL_RATE = 10;
+    private static final double MIN_RATE = 0.2;
+    private static final double MAX_RATE = 50;
+    private static final double RATE_INCREMENT = 0.5;
+    private static final double RATE_DECREASE_FACTOR = 0.5;
+    private static final Duration IDLE_TTL = Duration.ofMinutes(10);
+
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+
+    // Waits until a request to the node is allowed
+    public void acquire(String nodeName) {
+        Bucket bucket = buckets.computeIfAbsent(nodeName, k -> new Bucket());
+        long waitNanos;
+        synchronized (bucket) {
+            bucket.accessed = Instant.now();
+            bucket.refill();
+            bucket.tokens--;
+            waitNanos = bucket.tokens >= 0 ? 0 : (long) (-bucket.tokens / bucket.rate * 1e9);
+        }
+        if (waitNanos <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(Duration.ofNanos(waitNanos));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Time until the next request to the node is allowed at the current rate
+    public Duration nextPermitDelay(String nodeName) {
+        Bucket bucket = nodeName != null ? buckets.get(nodeName) : null;
+        if (bucket == null) {
+            return Duration.ZERO;
+        }
+        synchronized (bucket) {
+            bucket.refill();
+            return bucket.tokens >= 1
+                ? Duration.ZERO
+                : Duration.ofNanos((long) ((1 - bucket.tokens) / bucket.rate * 1e9));
+        }
+    }
+
+    public void report(String nodeName, NodeHealth.Outcome outcome) {
+        if (nodeName == null) {
+            return;
+        }
+        Bucket bucket = buckets.get(nodeName);
+        if (bucket == null) {
+            return;
+        }
+        synchronized (bucket) {
+            switch (outcome) {
+                case SUCCESS -> bucket.rate = Math.min(bucket.rate + RATE_INCREMENT, MAX_RATE);
+                case TOO_MANY -> {
+                    bucket.refill();
+                    bucket.rate = Math.max(bucket.rate * RATE_DECREASE_FACTOR, MIN_RATE);
+                    bucket.tokens = Math.min(bucket.tokens, 0);
+                    log.info("Node {} asks to slow down, limiting to {} requests/s",
+                        LogUtil.format(nodeName), String.format("%.1f", bucket.rate));
+                }
+                case ERROR, NEUTRAL -> {
+                }
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = Workload.NODE_RATE_LIMITER_PURGE_PERIOD)
+    public void purge() {
+        Instant idleSince = Instant.now().minus(IDLE_TTL);
+        buckets.entrySet().removeIf(entry -> {
+            synchronized (entry.getValue()) {
+                return entry.getValue().accessed.isBefore(idleSince);
+            }
+        });
+    }
+
+}
@@ -1,7 +1,11 @@
 package org.moera.search.auth;
 
 import java.net.InetAddress;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import jakarta.inject.Inject;
 
 import org.moera.lib.crypto.CryptoException;
@@ -23,8 +27,23 @@ import org.springframework.util.ObjectUtils;
 @Component
 public class AuthenticationManager {
 
+    private record VerifiedCarte(CarteProperties properties, CarteAuthInfo authInfo) {
+    }
+
     private static final Logger log = LoggerFactory.getLogger(AuthenticationManager.class);
 
+    private static final int MAX_VERIFIED_CARTES = 10000;
+
+    // Cartes with verified signatures by the digest of the carte, the least recently used are evicted
+    private final Map<String, VerifiedCarte> verifiedCartes = new LinkedHashMap<>(16, 0.75f, true) {
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, VerifiedCarte> eldest) {
+            return size() > MAX_VERIFIED_CARTES;
+        }
+
+    };
+
     @Inject
     private Config config;
 
@@ -40,6 +59,16 @@ public class AuthenticationManager {
         if (carte.length == 0) {
             return null;
         }
+        String hash = digest(carte);
+        VerifiedCarte cached;
+        synchronized (verifiedCartes) {
+            cached = verifiedCartes.get(hash);
+        }
+        if (cached != null) {
+            validate(cached.properties(), clientAddress);
+            return cached.authInfo();
+        }
+
         Fingerprint fingerprint;
         byte[] signature;
         try {
@@ -58,6 +87,28 @@ public class AuthenticationManager {
             log.info("Carte: not a carte fingerprint");
             throw new InvalidCarteException("carte.invalid");
         }
+        validate(cp, clientAddress);
+        byte[] signingKey = namingCache.get(cp.getOwnerName()).getSigningKey();
+        if (signingKey == null) {
+            log.info("Carte: signing key for node {} is unknown", LogUtil.format(cp.getOwnerName()));
+            throw new InvalidCarteException("carte.unknown-signing-key");
+        }
+        byte[] fingerprintBytes = CryptoUtil.fingerprint(
+            fingerprint, Fingerprints.getSchema("CARTE", fingerprint.getVersion())
+        );
+        if (!CryptoUtil.verifySignature(fingerprintBytes, signature, signingKey)) {
+            log.info("Carte: signature verification failed");
+            throw new InvalidCarteException("carte.invalid-signature");
+        }
+        var verified = new VerifiedCarte(cp, new CarteAuthInfo(cp));
+        synchronized (verifiedCartes) {
+            verifiedCartes.put(hash, verified);
+        }
+        return verified.authInfo();
+    }
+
+    // Checks that do not depend on the signature, performed on every use of the carte
+    private void validate(CarteProperties cp, InetAddress clientAddress) {
         if (cp.getAddress() != null && clientAddress != null && !cp.getAddress().equals(clientAddress)) {
             log.info("Carte: IP {} differs from client IP {}", cp.getAddress(), clientAddress);
             throw new InvalidCarteException("carte.invalid");
@@ -74,19 +125,14 @@ public class AuthenticationManager {
             log.info("Carte: belongs to a wrong node ({})", LogUtil.format(cp.getNodeName()));
             throw new InvalidCarteException("carte.wrong-node");
         }
-        byte[] signingKey = namingCache.get(cp.getOwnerName()).getSigningKey();
-        if (signingKey == null) {
-            log.info("Carte: signing key for node {} is unknown", LogUtil.format(cp.getOwnerName()));
-            throw new InvalidCarteException("carte.unknown-signing-key");
-        }
-        byte[] fingerprintBytes = CryptoUtil.fingerprint(
-            fingerprint, Fingerprints.getSchema("CARTE", fingerprint.getVersion())
-        );
-        if (!CryptoUtil.verifySignature(fingerprintBytes, signature, signingKey)) {
-            log.info("Carte: signature verification failed");
-            throw new InvalidCarteException("carte.invalid-signature");
+    }
+
+    private static String digest(byte[] carte) {
+        try {
+            return Util.base64encode(MessageDigest.getInstance("SHA-256").digest(carte));
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
         }
-        return new CarteAuthInfo(cp);
     }
 
 }
@@ -0,0 +1,104 @@
+package org.moera.search.auth;
+
+import java.net.InetAddress;
+import java.security.PrivateKey;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import jakarta.inject.Inject;
+
+import org.moera.lib.crypto.CryptoException;
+import org.moera.lib.crypto.CryptoUtil;
+import org.moera.lib.crypto.FingerprintException;
+import org.moera.lib.node.Fingerprints;
+import org.moera.lib.node.carte.Carte;
+import org.moera.lib.node.types.Scope;
+import org.moera.search.Workload;
+import org.moera.search.config.Config;
+import org.moera.search.config.NotConfiguredException;
+import org.moera.search.util.Util;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+// Cartes of this node for outgoing requests. A carte is reused until half of its lifetime passes.
+@Component
+public class CarteCache {
+
+    private record Key(String targetNodeName, long clientScope, long adminScope) {
+    }
+
+    private record Record(String carte, Instant refreshAt, Instant deadline) {
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(CarteCache.class);
+
+    private static final Duration DEFAULT_TTL = Duration.ofMinutes(1);
+
+    private final Map<Key, Record> cache = new ConcurrentHashMap<>();
+    private volatile PrivateKey signingKey;
+
+    @Inject
+    private Config config;
+
+    public PrivateKey getSigningKey() {
+        if (signingKey == null) {
+            if (config.getSigningKey() == null) {
+                throw new NotConfiguredException("Signing key is not set in the configuration file (node.signing-key)");
+            }
+            signingKey = CryptoUtil.rawToPrivateKey(Util.hexdecode(config.getSigningKey()));
+        }
+        return signingKey;
+    }
+
+    public String get(List<InetAddress> addresses, String targetNodeName, Scope clientScope, Scope adminScope) {
+        var key = new Key(targetNodeName, clientScope.getMask(), adminScope.getMask());
+        Instant now = Instant.now();
+        var record = cache.get(key);
+        if (record == null || !now.isBefore(record.refreshAt())) {
+            record = cache.compute(key, (k, r) ->
+                r != null && now.isBefore(r.refreshAt())
+                    ? r
+                    : generate(addresses, targetNodeName, clientScope, adminScope)
+            );
+        }
+        return record.carte();
+    }
+
+    private Record generate(List<InetAddress> addresses, String targetNodeName, Scope clientScope, Scope adminScope) {
+        Instant beginning = Instant.now();
+        String carte = Carte.generate(
+            config.getNodeName(), addresses, beginning, getSigningKey(), targetNodeName,
+            clientScope.getMask(), adminScope.getMask()
+        );
+        Instant deadline = getDeadline(carte);
+        if (deadline == null) {
+            deadline = beginning.plus(DEFAULT_TTL);
+        }
+        Instant refreshAt = beginning.plus(Duration.between(beginning, deadline).dividedBy(2));
+        return new Record(carte, refreshAt, deadline);
+    }
+
+    private Instant getDeadline(String carte) {
+        try {
+            var rc = CryptoUtil.restoreFingerprint(
+                Util.base64urldecode(carte), version -> Fingerprints.getSchema("CARTE", version)
+            );
+            var deadline = new CarteProperties(rc.fingerprint()).getDeadline();
+            return deadline != null ? deadline.toInstant() : null;
+        } catch (CryptoException | FingerprintException e) {
+            log.warn("Cannot find the deadline of a generated carte: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    @Scheduled(fixedDelayString = Workload.CARTE_CACHE_PURGE_PERIOD)
+    public void purge() {
+        Instant now = Instant.now();
+        cache.values().removeIf(r -> r.deadline().isBefore(now));
+    }
+
+}
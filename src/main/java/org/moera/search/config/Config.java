@@ -17,6 +17,7 @@ public class Config {
     private IndexConfig index = new IndexConfig();
     private String namingServer;
     private PoolsConfig pools = new PoolsConfig();
+    private JobsConfig jobs = new JobsConfig();
     private MediaConfig media = new MediaConfig();
     private String sheriffDefault;
 
@@ -100,6 +101,14 @@ public class Config {
         this.pools = pools;
     }
 
+    public JobsConfig getJobs() {
+        return jobs;
+    }
+
+    public void setJobs(JobsConfig jobs) {
+        this.jobs = jobs;
+    }
+
     public MediaConfig getMedia() {
         return media;
     }
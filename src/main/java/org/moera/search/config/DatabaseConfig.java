@@ -6,6 +6,12 @@ public class DatabaseConfig {
     private String user;
     private String password;
     private String database;
+    private int maxConnectionPoolSize = 100;
+    private int connectionAcquisitionTimeout = 60000; // ms
+    private int connectionTimeout = 30000; // ms
+    private int maxConnectionLifetime = 3600000; // ms
+    private int fetchSize = 1000;
+    private int maxTransactionRetryTime = 30000; // ms
 
     public String getUrl() {
         return url;
@@ -39,4 +45,52 @@ public class DatabaseConfig {
         this.database = database;
     }
 
+    public int getMaxConnectionPoolSize() {
+        return maxConnectionPoolSize;
+    }
+
+    public void setMaxConnectionPoolSize(int maxConnectionPoolSize) {
+        this.maxConnectionPoolSize = maxConnectionPoolSize;
+    }
+
+    public int getConnectionAcquisitionTimeout() {
+        return connectionAcquisitionTimeout;
+    }
+
+    public void setConnectionAcquisitionTimeout(int connectionAcquisitionTimeout) {
+        this.connectionAcquisitionTimeout = connectionAcquisitionTimeout;
+    }
+
+    public int getConnectionTimeout() {
+        return connectionTimeout;
+    }
+
+    public void setConnectionTimeout(int connectionTimeout) {
+        this.connectionTimeout = connectionTimeout;
+    }
+
+    public int getMaxConnectionLifetime() {
+        return maxConnectionLifetime;
+    }
+
+    public void setMaxConnectionLifetime(int maxConnectionLifetime) {
+        this.maxConnectionLifetime = maxConnectionLifetime;
+    }
+
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    public void setFetchSize(int fetchSize) {
+        this.fetchSize = fetchSize;
+    }
+
+    public int getMaxTransactionRetryTime() {
+        return maxTransactionRetryTime;
+    }
+
+    public void setMaxTransactionRetryTime(int maxTransactionRetryTime) {
+        this.maxTransactionRetryTime = maxTransactionRetryTime;
+    }
+
 }
@@ -0,0 +1,24 @@
+package org.moera.search.config;
+
+public class JobsConfig {
+
+    private int persistPeriod = 1000; // ms, 0 to write immediately
+    private String codec = "smile"; // smile or json
+
+    public int getPersistPeriod() {
+        return persistPeriod;
+    }
+
+    public void setPersistPeriod(int persistPeriod) {
+        this.persistPeriod = persistPeriod;
+    }
+
+    public String getCodec() {
+        return codec;
+    }
+
+    public void setCodec(String codec) {
+        this.codec = codec;
+    }
+
+}
@@ -4,6 +4,9 @@ public class PoolsConfig {
 
     private int naming = 16;
     private int job = 16;
+    private int jobBulk = 16;
+    private boolean jobVirtual;
+    private int jobPerNode = 8;
 
     public int getNaming() {
         return naming;
@@ -21,4 +24,28 @@ public class PoolsConfig {
         this.job = job;
     }
 
+    public int getJobBulk() {
+        return jobBulk;
+    }
+
+    public void setJobBulk(int jobBulk) {
+        this.jobBulk = jobBulk;
+    }
+
+    public boolean isJobVirtual() {
+        return jobVirtual;
+    }
+
+    public void setJobVirtual(boolean jobVirtual) {
+        this.jobVirtual = jobVirtual;
+    }
+
+    public int getJobPerNode() {
+        return jobPerNode;
+    }
+
+    public void setJobPerNode(int jobPerNode) {
+        this.jobPerNode = jobPerNode;
+    }
+
 }
@@ -3,12 +3,19 @@ package org.moera.search.data;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
 import jakarta.inject.Inject;
 
 import org.moera.search.config.Config;
 import org.neo4j.driver.AuthTokens;
+import org.neo4j.driver.BookmarkManager;
+import org.neo4j.driver.BookmarkManagerConfig;
+import org.neo4j.driver.BookmarkManagers;
+import org.neo4j.driver.ConnectionPoolMetrics;
 import org.neo4j.driver.Driver;
 import org.neo4j.driver.GraphDatabase;
 import org.neo4j.driver.Session;
@@ -36,6 +43,9 @@ public class Database {
 
     }
 
+    private record SessionSettings(SessionConfig config, boolean releasing) {
+    }
+
     private static final Logger log = LoggerFactory.getLogger(Database.class);
 
     @Inject
@@ -48,18 +58,38 @@ public class Database {
     private ApplicationEventPublisher applicationEventPublisher;
 
     private Driver driver;
+    // Bookmarks of the sessions serving client requests, to make a request see the writes of the previous ones
+    // when reads are routed to other cluster members
+    private final BookmarkManager requestBookmarks = BookmarkManagers.defaultManager(
+        BookmarkManagerConfig.builder().build()
+    );
     private boolean ready = false;
+    private final ThreadLocal<SessionSettings> sessionSettings = new ThreadLocal<>();
     private final ThreadLocal<Session> session = new ThreadLocal<>();
     private final ThreadLocal<TransactionContext> tx = new ThreadLocal<>();
 
     @EventListener(ApplicationReadyEvent.class)
     private void init() {
+        var databaseConfig = config.getDatabase();
+        var driverConfig = org.neo4j.driver.Config.builder()
+            .withMaxConnectionPoolSize(databaseConfig.getMaxConnectionPoolSize())
+            .withConnectionAcquisitionTimeout(databaseConfig.getConnectionAcquisitionTimeout(), TimeUnit.MILLISECONDS)
+            .withConnectionTimeout(databaseConfig.getConnectionTimeout(), TimeUnit.MILLISECONDS)
+            .withMaxConnectionLifetime(databaseConfig.getMaxConnectionLifetime(), TimeUnit.MILLISECONDS)
+            .withFetchSize(databaseConfig.getFetchSize())
+            .withMaxTransactionRetryTime(databaseConfig.getMaxTransactionRetryTime(), TimeUnit.MILLISECONDS)
+            .withDriverMetrics()
+            .build();
         driver = GraphDatabase.driver(
-            config.getDatabase().getUrl(),
-            AuthTokens.basic(config.getDatabase().getUser(), config.getDatabase().getPassword())
+            databaseConfig.getUrl(),
+            AuthTokens.basic(databaseConfig.getUser(), databaseConfig.getPassword()),
+            driverConfig
         );
         driver.verifyConnectivity();
         log.info("Connected to database {}", config.getDatabase().getUrl());
+        if (databaseConfig.getUrl().startsWith("neo4j")) {
+            log.info("Read transactions are routed to the cluster members");
+        }
         try {
             executeMigrations();
         } catch (Exception e) {
@@ -128,100 +158,163 @@ public class Database {
         );
     }
 
+    public Collection<ConnectionPoolMetrics> getPoolMetrics() {
+        return driver != null ? driver.metrics().connectionPoolMetrics() : Collections.emptyList();
+    }
+
     public boolean isReady() {
         return ready;
     }
 
     public SessionCloseable open() {
-        if (session.get() != null) {
+        return open(SessionConfig.forDatabase(config.getDatabase().getDatabase()), false);
+    }
+
+    // Opens a session that waits for the writes made in all client requests completed before. The bookmarks are
+    // kept by the bookmark manager, so the driver session is released after every transaction.
+    public SessionCloseable openCausal() {
+        return open(
+            SessionConfig.builder()
+                .withDatabase(config.getDatabase().getDatabase())
+                .withBookmarkManager(requestBookmarks)
+                .build(),
+            true
+        );
+    }
+
+    // The driver session is created when the first transaction starts
+    private SessionCloseable open(SessionConfig sessionConfig, boolean releasing) {
+        if (sessionSettings.get() != null) {
             throw new DatabaseException("Database session is open already");
         }
-        session.set(driver.session(SessionConfig.forDatabase(config.getDatabase().getDatabase())));
+        sessionSettings.set(new SessionSettings(sessionConfig, releasing));
         return new SessionCloseable();
     }
 
     public void close() {
-        if (session.get() == null) {
+        if (sessionSettings.get() == null) {
             throw new DatabaseException("Database session is not open");
         }
-        session.get().close();
-        session.remove();
+        closeSession();
+        sessionSettings.remove();
+    }
+
+    private void closeSession() {
+        if (session.get() != null) {
+            session.get().close();
+            session.remove();
+        }
     }
 
     public Session session() {
-        if (session.get() == null) {
+        var settings = sessionSettings.get();
+        if (settings == null) {
             throw new DatabaseException("Database session is not open");
         }
+        if (session.get() == null) {
+            session.set(driver.session(settings.config()));
+        }
         return session.get();
     }
 
+    private void transactionFinished() {
+        var settings = sessionSettings.get();
+        if (settings != null && settings.releasing()) {
+            closeSession();
+        }
+    }
+
     public <T> T read(Supplier<T> callback) {
         if (tx.get() != null) {
             throw new DatabaseException("Transaction is running already");
         }
-        return session().executeRead(context -> {
-            tx.set(context);
-            try {
-                return callback.get();
-            } finally {
-                tx.remove();
-            }
-        });
+        try {
+            return session().executeRead(context -> {
+                tx.set(context);
+                try {
+                    return callback.get();
+                } finally {
+                    tx.remove();
+                }
+            });
+        } finally {
+            transactionFinished();
+        }
     }
 
     public <T> T write(Supplier<T> callback) {
         if (tx.get() != null) {
             throw new DatabaseException("Transaction is running already");
         }
-        return session().executeWrite(context -> {
-            tx.set(context);
-            try {
-                return callback.get();
-            } finally {
-                tx.remove();
-            }
-        });
+        try {
+            return session().executeWrite(context -> {
+                tx.set(context);
+                try {
+                    return callback.get();
+                } finally {
+                    tx.remove();
+                }
+            });
+        } finally {
+            transactionFinished();
+        }
     }
 
     public void readNoResult(Runnable callback) {
         if (tx.get() != null) {
             throw new DatabaseException("Transaction is running already");
         }
-        session().executeRead(context -> {
-            tx.set(context);
-            try {
-                callback.run();
-            } finally {
-                tx.remove();
-            }
-            return null;
-        });
+        try {
+            session().executeRead(context -> {
+                tx.set(context);
+                try {
+                    callback.run();
+                } finally {
+                    tx.remove();
+                }
+                return null;
+            });
+        } finally {
+            transactionFinished();
+        }
     }
 
     public void writeNoResult(Runnable callback) {
         if (tx.get() != null) {
             throw new DatabaseException("Transaction is running already");
         }
-        session().executeWriteWithoutResult(context -> {
-            tx.set(context);
-            try {
-                callback.run();
-            } finally {
-                tx.remove();
-            }
-        });
+        try {
+            session().executeWriteWithoutResult(context -> {
+                tx.set(context);
+                try {
+                    callback.run();
+                } finally {
+                    tx.remove();
+                }
+            });
+        } finally {
+            transactionFinished();
+        }
     }
 
     public void writeIgnoreConflict(Runnable callback) {
         try {
             writeNoResult(callback);
         } catch (Neo4jException e) {
-            if (!e.code().equals("Neo.ClientError.Schema.ConstraintValidationFailed")) {
+            if (!isConflict(e)) {
                 throw e;
             }
         }
     }
 
+    static boolean isConflict(Neo4jException e) {
+        return e.code().equals("Neo.ClientError.Schema.ConstraintValidationFailed");
+    }
+
+    public UnitOfWork unitOfWork() {
+        return new UnitOfWork(this);
+    }
+
     public TransactionContext tx() {
         if (tx.get() == null) {
             throw new DatabaseException("Transaction is not running");
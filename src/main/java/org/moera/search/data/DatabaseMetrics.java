@@ -0,0 +1,52 @@
+package org.moera.search.data;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
+import jakarta.inject.Inject;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.neo4j.driver.ConnectionPoolMetrics;
+import org.springframework.stereotype.Component;
+
+// Connection pool metrics of the database driver, summed over the pools of all servers
+@Component
+public class DatabaseMetrics implements MeterBinder {
+
+    @Inject
+    private Database database;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("neo4j.pool.in.use", this, m -> m.sum(ConnectionPoolMetrics::inUse))
+            .description("Connections in use")
+            .register(registry);
+        Gauge.builder("neo4j.pool.idle", this, m -> m.sum(ConnectionPoolMetrics::idle))
+            .description("Idle connections")
+            .register(registry);
+        Gauge.builder("neo4j.pool.acquiring", this, m -> m.sum(ConnectionPoolMetrics::acquiring))
+            .description("Requests waiting for a connection")
+            .register(registry);
+        FunctionTimer.builder(
+                "neo4j.pool.acquisition",
+                this,
+                m -> m.sum(ConnectionPoolMetrics::acquired),
+                m -> m.sum(ConnectionPoolMetrics::totalAcquisitionTime),
+                TimeUnit.MILLISECONDS
+            )
+            .description("Time spent waiting for a connection")
+            .register(registry);
+        FunctionCounter.builder("neo4j.pool.acquisition.timeouts", this,
+                m -> m.sum(ConnectionPoolMetrics::timedOutToAcquire))
+            .description("Requests that failed to get a connection in time")
+            .register(registry);
+    }
+
+    private double sum(ToLongFunction<ConnectionPoolMetrics> metric) {
+        return database.getPoolMetrics().stream().mapToLong(metric).sum();
+    }
+
+}
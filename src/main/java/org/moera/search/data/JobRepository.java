@@ -1,10 +1,10 @@
 package org.moera.search.data;
 
-import java.time.Instant;
-import java.time.temporal.ChronoUnit;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
 import jakarta.inject.Inject;
 
@@ -16,100 +16,121 @@ public class JobRepository {
     @Inject
     private Database database;
 
-    public List<PendingJob> findAllBefore(long before) {
+    public List<PendingJob> findAllBefore(long before, String afterId, int limit) {
         return database.tx().run(
             """
             MATCH (j:Job)
-            WHERE j.waitUntil IS NULL OR j.waitUntil < $before
+            WHERE j.id > $afterId AND (j.waitUntil IS NULL OR j.waitUntil < $before)
             RETURN j
+            ORDER BY j.id
+            LIMIT $limit
             """,
-            Map.of("before", before)
+            Map.of(
+                "before", before,
+                "afterId", afterId,
+                "limit", limit
+            )
         ).stream().map(r -> new PendingJob(r.get("j").asNode())).toList();
     }
 
-    public UUID create(String jobType, String jobKey, String parameters, String state) {
-        UUID id = UUID.randomUUID();
-        var args = new HashMap<String, Object>();
-        args.put("id", id.toString());
-        args.put("jobType", jobType);
-        args.put("jobKey", jobKey);
-        args.put("parameters", parameters);
-        args.put("state", state);
-
-        database.tx().run(
+    public Optional<PendingJob> findById(UUID id) {
+        return database.tx().run(
             """
-            CREATE (:Job {id: $id, jobType: $jobType, jobKey: $jobKey, parameters: $parameters, state: $state})
+            MATCH (j:Job {id: $id})
+            RETURN j
             """,
-            args
-        );
-
-        return id;
+            Map.of("id", id.toString())
+        ).stream().map(r -> new PendingJob(r.get("j").asNode())).findFirst();
     }
 
-    public void updateState(UUID id, String state, int retries, Long waitUntil) {
-        var args = new HashMap<String, Object>();
-        args.put("id", id.toString());
-        args.put("state", state);
-        args.put("retries", retries);
-        args.put("waitUntil", waitUntil);
+    // The target is known only for the jobs assigned to scan a node
+    public record JobSummary(UUID id, String jobType, String jobKey, String target, Long waitUntil) {
+    }
 
-        database.tx().run(
+    public List<JobSummary> findAllSummaries(String afterId, int limit) {
+        return database.tx().run(
             """
-            MATCH (j:Job {id: $id})
-            SET j.state = $state, j.retries = $retries, j.waitUntil = $waitUntil
+            MATCH (j:Job)
+            WHERE j.id > $afterId
+            RETURN j.id AS id, j.jobType AS jobType, j.jobKey AS jobKey,
+                   head([(j)-[:SCANS]->(n:MoeraNode) | n.name]) AS target, j.waitUntil AS waitUntil
+            ORDER BY j.id
+            LIMIT $limit
             """,
-            args
-        );
+            Map.of(
+                "afterId", afterId,
+                "limit", limit
+            )
+        ).list(r -> new JobSummary(
+            UUID.fromString(r.get("id").asString()),
+            r.get("jobType").asString(null),
+            r.get("jobKey").asString(null),
+            r.get("target").asString(null),
+            (Long) r.get("waitUntil").asObject()
+        ));
     }
 
-    public void delete(UUID id) {
+    public void createAll(Collection<PendingJob> jobs) {
+        var list = jobs.stream().map(job -> {
+            var fields = new HashMap<String, Object>();
+            fields.put("id", job.getId().toString());
+            fields.put("jobType", job.getJobType());
+            fields.put("jobKey", job.getJobKey());
+            fields.put("priority", job.getPriority());
+            fields.put("parameters", job.getParameters());
+            fields.put("state", job.getState());
+            fields.put("retries", job.getRetries());
+            fields.put("waitUntil", job.getWaitUntil());
+            return fields;
+        }).toList();
+
         database.tx().run(
             """
-            MATCH (j:Job {id: $id})
-            DETACH DELETE j
+            UNWIND $jobs AS job
+            CREATE (:Job {
+                id: job.id,
+                jobType: job.jobType,
+                jobKey: job.jobKey,
+                priority: job.priority,
+                parameters: job.parameters,
+                state: job.state,
+                retries: job.retries,
+                waitUntil: job.waitUntil
+            })
             """,
-            Map.of("id", id.toString())
+            Map.of("jobs", list)
         );
     }
 
-    public int countRunningByType(String jobType) {
-        return database.tx().run(
-            """
-            MATCH (j:Job {jobType: $jobType})
-            WHERE j.waitUntil IS NULL OR j.waitUntil >= $now
-            RETURN count(j) AS count
-            """,
-            Map.of(
-                "jobType", jobType,
-                "now", Instant.now().minus(1, ChronoUnit.HOURS).toEpochMilli()
-            )
-        ).single().get("count").asInt();
-    }
+    public void updateStateAll(Collection<PendingJob> jobs) {
+        var list = jobs.stream().map(job -> {
+            var fields = new HashMap<String, Object>();
+            fields.put("id", job.getId().toString());
+            fields.put("state", job.getState());
+            fields.put("retries", job.getRetries());
+            fields.put("waitUntil", job.getWaitUntil());
+            return fields;
+        }).toList();
 
-    public boolean keyExists(String jobKey) {
-        return database.tx().run(
+        database.tx().run(
             """
-            RETURN EXISTS {
-                MATCH (j:Job {jobKey: $jobKey})
-            } AS e
+            UNWIND $jobs AS job
+            MATCH (j:Job {id: job.id})
+            SET j.state = job.state, j.retries = job.retries, j.waitUntil = job.waitUntil
             """,
-            Map.of(
-                "jobKey", jobKey
-            )
-        ).single().get("e").asBoolean();
+            Map.of("jobs", list)
+        );
     }
 
-    public boolean keysByPrefixExist(String jobKeyPrefix) {
-        return database.tx().run(
+    public void deleteAll(Collection<UUID> ids) {
+        database.tx().run(
             """
-            RETURN EXISTS {
-                MATCH (j:Job WHERE j.jobKey STARTS WITH $jobKeyPrefix)
-            } AS e
+            UNWIND $ids AS id
+            MATCH (j:Job {id: id})
+            DETACH DELETE j
             """,
-            Map.of(
-                "jobKeyPrefix", jobKeyPrefix
-            )
-        ).single().get("e").asBoolean();
+            Map.of("ids", ids.stream().map(UUID::toString).toList())
+        );
     }
 
 }
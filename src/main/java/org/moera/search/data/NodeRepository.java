@@ -42,6 +42,16 @@ public class NodeRepository {
         );
     }
 
+    public void createNames(List<String> names) {
+        database.tx().run(
+            """
+            UNWIND $names AS name
+            MERGE (:MoeraNode {name: name})
+            """,
+            Map.of("names", names)
+        );
+    }
+
     public void updateName(String name, WhoAmI whoAmI) {
         var args = new HashMap<String, Object>();
         args.put("name", name);
@@ -91,11 +101,12 @@ public class NodeRepository {
         );
     }
 
+    // Includes the names that are being scanned already
     public List<String> findNamesToScan(int limit) {
         return database.tx().run(
             """
             MATCH (n:MoeraNode)
-            WHERE n.scanProfile IS NULL AND NOT (n)<-[:SCANS]-(:Job)
+            WHERE n.scanProfile IS NULL
             LIMIT $limit
             RETURN n.name AS name
             """,
@@ -194,6 +205,21 @@ public class NodeRepository {
         );
     }
 
+    public void addFriendships(String name, List<String> peerNames) {
+        database.tx().run(
+            """
+            MATCH (n:MoeraNode {name: $name})
+            UNWIND $peerNames AS peerName
+            MATCH (p:MoeraNode {name: peerName})
+            MERGE (n)-[:FRIEND]->(p)
+            """,
+            Map.of(
+                "name", name,
+                "peerNames", peerNames
+            )
+        );
+    }
+
     public void deleteFriendship(String name, String peerName) {
         database.tx().run(
             """
@@ -221,6 +247,22 @@ public class NodeRepository {
         );
     }
 
+    public void addSubscriptions(String name, List<String> peerNames, String feedName) {
+        database.tx().run(
+            """
+            MATCH (n:MoeraNode {name: $name})
+            UNWIND $peerNames AS peerName
+            MATCH (p:MoeraNode {name: peerName})
+            MERGE (n)-[:SUBSCRIBED {feedName: $feedName}]->(p)
+            """,
+            Map.of(
+                "name", name,
+                "peerNames", peerNames,
+                "feedName", feedName
+            )
+        );
+    }
+
     public void deleteSubscription(String name, String peerName, String feedName) {
         database.tx().run(
             """
@@ -249,6 +291,22 @@ public class NodeRepository {
         );
     }
 
+    public void addBlocks(String name, List<String> peerNames, BlockedOperation blockedOperation) {
+        database.tx().run(
+            """
+            MATCH (n:MoeraNode {name: $name})
+            UNWIND $peerNames AS peerName
+            MATCH (p:MoeraNode {name: peerName})
+            MERGE (n)-[:BLOCKS {blockedOperation: $blockedOperation}]->(p)
+            """,
+            Map.of(
+                "name", name,
+                "peerNames", peerNames,
+                "blockedOperation", blockedOperation.getValue()
+            )
+        );
+    }
+
     public void deleteBlocks(String name, String peerName, BlockedOperation blockedOperation) {
         database.tx().run(
             """
@@ -374,6 +432,20 @@ public class NodeRepository {
         );
     }
 
+    public void deleteCloseTo(String name, List<String> peerNames) {
+        database.tx().run(
+            """
+            MATCH (:MoeraNode {name: $name})-[c:CLOSE_TO]->(p:MoeraNode)
+            WHERE p.name IN $peerNames
+            DELETE c
+            """,
+            Map.of(
+                "name", name,
+                "peerNames", peerNames
+            )
+        );
+    }
+
     public List<String> findNamesForCloseToCleanup(int limit) {
         return database.tx().run(
             """
@@ -1,27 +1,45 @@
 package org.moera.search.data;
 
+import java.nio.charset.StandardCharsets;
 import java.util.UUID;
 
+import org.neo4j.driver.Value;
 import org.neo4j.driver.types.Node;
 
 public class PendingJob {
 
     private UUID id;
     private String jobType;
-    private String parameters;
-    private String state;
+    private String jobKey;
+    private String priority;
+    private byte[] parameters;
+    private byte[] state;
     private int retries;
     private Long waitUntil;
 
+    public PendingJob() {
+    }
+
     public PendingJob(Node node) {
         id = UUID.fromString(node.get("id").asString(null));
         jobType = node.get("jobType").asString(null);
-        parameters = node.get("parameters").asString(null);
-        state = node.get("state").asString(null);
+        jobKey = node.get("jobKey").asString(null);
+        priority = node.get("priority").asString(null);
+        parameters = toBytes(node.get("parameters"));
+        state = toBytes(node.get("state"));
         retries = node.get("retries").asInt(0);
         waitUntil = (Long) node.get("waitUntil").asObject();
     }
 
+    // Older jobs are stored as JSON strings
+    private static byte[] toBytes(Value value) {
+        return switch (value.asObject()) {
+            case byte[] bytes -> bytes;
+            case String string -> string.getBytes(StandardCharsets.UTF_8);
+            case null, default -> null;
+        };
+    }
+
     public UUID getId() {
         return id;
     }
@@ -38,19 +56,35 @@ public class PendingJob {
         this.jobType = jobType;
     }
 
-    public String getParameters() {
+    public String getJobKey() {
+        return jobKey;
+    }
+
+    public void setJobKey(String jobKey) {
+        this.jobKey = jobKey;
+    }
+
+    public String getPriority() {
+        return priority;
+    }
+
+    public void setPriority(String priority) {
+        this.priority = priority;
+    }
+
+    public byte[] getParameters() {
         return parameters;
     }
 
-    public void setParameters(String parameters) {
+    public void setParameters(byte[] parameters) {
         this.parameters = parameters;
     }
 
-    public String getState() {
+    public byte[] getState() {
         return state;
     }
 
-    public void setState(String state) {
+    public void setState(byte[] state) {
         this.state = state;
     }
 
@@ -7,6 +7,7 @@ import java.util.UUID;
 import jakarta.inject.Inject;
 
 import org.moera.search.job.Job;
+import org.moera.search.job.JobPriority;
 import org.moera.search.job.Jobs;
 import tools.jackson.databind.ObjectMapper;
 
@@ -76,8 +77,21 @@ public abstract class PendingUpdate<P> {
 
     public abstract String jobKey();
 
+    public JobPriority priority() {
+        return JobPriority.INTERACTIVE;
+    }
+
+    // A newer update with the same coalesce key supersedes the older ones that are not started yet
+    public String coalesceKey() {
+        return null;
+    }
+
+    // Called on the newer update to take over whatever is needed from the older one it supersedes
+    public void absorb(PendingUpdate<?> older) {
+    }
+
     public final void execute() {
-        jobs.run(getJobClass(), jobParameters, jobKey());
+        jobs.run(getJobClass(), jobParameters, jobKey(), priority());
     }
 
 }
@@ -3,10 +3,13 @@ package org.moera.search.data;
 import java.lang.reflect.InvocationTargetException;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
 import jakarta.inject.Inject;
@@ -32,54 +35,110 @@ public class PendingUpdateRepository {
     @Inject
     private AutowireCapableBeanFactory autowireCapableBeanFactory;
 
-    public void create(PendingUpdate<?> update) {
-        var args = new HashMap<String, Object>();
-        args.put("id", update.getId().toString());
-        args.put("type", update.getClass().getCanonicalName());
-        args.put(
-            "jobParameters",
-            update.getJobParameters() != null ? objectMapper.writeValueAsString(update.getJobParameters()) : null
-        );
-        args.put("createdAt", update.getCreatedAt().toEpochMilli());
+    // Updates that are stored already are rewritten
+    public void createAll(Collection<PendingUpdate<?>> updates) {
+        var list = updates.stream().map(update -> {
+            var fields = new HashMap<String, Object>();
+            fields.put("id", update.getId().toString());
+            fields.put("type", update.getClass().getCanonicalName());
+            fields.put(
+                "jobParameters",
+                update.getJobParameters() != null ? objectMapper.writeValueAsString(update.getJobParameters()) : null
+            );
+            fields.put("createdAt", update.getCreatedAt().toEpochMilli());
+            fields.put("jobKey", update.jobKey());
+            return fields;
+        }).toList();
 
         database.tx().run(
             """
-            CREATE (:PendingUpdate {
-                id: $id,
-                type: $type,
-                jobParameters: $jobParameters,
-                createdAt: $createdAt
-            })
+            UNWIND $updates AS update
+            MERGE (pu:PendingUpdate {id: update.id})
+            SET pu.type = update.type,
+                pu.jobParameters = update.jobParameters,
+                pu.createdAt = update.createdAt,
+                pu.jobKey = update.jobKey
             """,
-            args
+            Map.of("updates", list)
         );
     }
 
-    public void deleteById(UUID id) {
+    public void deleteAllById(Collection<UUID> ids) {
         database.tx().run(
             """
-            MATCH (pu:PendingUpdate {id: $id})
+            UNWIND $ids AS id
+            MATCH (pu:PendingUpdate {id: id})
             DETACH DELETE pu
             """,
             Map.of(
-                "id", id.toString()
+                "ids", ids.stream().map(UUID::toString).toList()
             )
         );
     }
 
-    public List<PendingUpdate<?>> findAll() {
-        return database.tx().run(
+    // Updates that cannot be loaded are not included into the list, but are counted in the size of the page
+    public record Page(List<PendingUpdate<?>> updates, int size, long lastCreatedAt, String lastId) {
+    }
+
+    public Page findPage(long createdBefore, long afterCreatedAt, String afterId, int limit) {
+        var nodes = database.tx().run(
             """
             MATCH (pu:PendingUpdate)
-            ORDER BY pu.createdAt ASC
+            WHERE pu.createdAt < $createdBefore
+                  AND (pu.createdAt > $afterCreatedAt OR pu.createdAt = $afterCreatedAt AND pu.id > $afterId)
             RETURN pu
-            """
-        )
-            .stream()
-            .map(r -> r.get("pu").asNode())
+            ORDER BY pu.createdAt ASC, pu.id ASC
+            LIMIT $limit
+            """,
+            Map.of(
+                "createdBefore", createdBefore,
+                "afterCreatedAt", afterCreatedAt,
+                "afterId", afterId,
+                "limit", limit
+            )
+        ).list(r -> r.get("pu").asNode());
+        if (nodes.isEmpty()) {
+            return new Page(List.of(), 0, afterCreatedAt, afterId);
+        }
+
+        var updates = nodes.stream()
             .map(this::loadPendingUpdate)
             .filter(Objects::nonNull)
             .collect(Collectors.toCollection(ArrayList::new));
+        var last = nodes.get(nodes.size() - 1);
+        return new Page(updates, nodes.size(), last.get("createdAt").asLong(), last.get("id").asString());
+    }
+
+    // Job keys from the list that belong to the stored updates created before the given moment and not loaded yet
+    public Set<String> findJobKeysInBacklog(
+        Collection<String> jobKeys, long createdBefore, long afterCreatedAt, String afterId
+    ) {
+        return new HashSet<>(database.tx().run(
+            """
+            MATCH (pu:PendingUpdate)
+            WHERE pu.jobKey IN $jobKeys
+                  AND pu.createdAt < $createdBefore
+                  AND (pu.createdAt > $afterCreatedAt OR pu.createdAt = $afterCreatedAt AND pu.id > $afterId)
+            RETURN DISTINCT pu.jobKey AS jobKey
+            """,
+            Map.of(
+                "jobKeys", jobKeys,
+                "createdBefore", createdBefore,
+                "afterCreatedAt", afterCreatedAt,
+                "afterId", afterId
+            )
+        ).list(r -> r.get("jobKey").asString()));
+    }
+
+    // Updates stored by the older versions have no job key
+    public long findLastCreatedAtWithoutJobKey() {
+        return database.tx().run(
+            """
+            MATCH (pu:PendingUpdate)
+            WHERE pu.jobKey IS NULL
+            RETURN max(pu.createdAt) AS createdAt
+            """
+        ).single().get("createdAt").asLong(Long.MIN_VALUE);
     }
 
     private PendingUpdate<?> loadPendingUpdate(Node node) {
@@ -0,0 +1,47 @@
+package org.moera.search.data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.neo4j.driver.exceptions.Neo4jException;
+
+// Graph mutations of one entity, collected while the entity is processed and written in a single transaction.
+// Requests to remote nodes and to the index must be made before or after the commit, never inside mutations.
+public class UnitOfWork {
+
+    private final Database database;
+    private final List<Runnable> mutations = new ArrayList<>();
+
+    UnitOfWork(Database database) {
+        this.database = database;
+    }
+
+    public void add(Runnable mutation) {
+        mutations.add(mutation);
+    }
+
+    public boolean isEmpty() {
+        return mutations.isEmpty();
+    }
+
+    public void commit() {
+        if (mutations.isEmpty()) {
+            return;
+        }
+        try {
+            database.writeNoResult(this::execute);
+        } catch (Neo4jException e) {
+            if (!Database.isConflict(e)) {
+                throw e;
+            }
+            // The same node was created by a concurrent transaction, MERGE will find it this time
+            database.writeNoResult(this::execute);
+        }
+        mutations.clear();
+    }
+
+    private void execute() {
+        mutations.forEach(Runnable::run);
+    }
+
+}
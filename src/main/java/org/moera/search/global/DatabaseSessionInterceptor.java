@@ -16,7 +16,7 @@ public class DatabaseSessionInterceptor implements HandlerInterceptor {
 
     @Override
     public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
-        database.open();
+        database.openCausal();
         return true;
     }
 
@@ -3,26 +3,26 @@ package org.moera.search.job;
 import java.security.PrivateKey;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.Arrays;
+import java.util.Objects;
 import java.util.UUID;
 import java.util.function.Supplier;
 import jakarta.inject.Inject;
 
-import org.moera.lib.crypto.CryptoUtil;
-import org.moera.lib.node.carte.Carte;
 import org.moera.lib.node.exception.MoeraNodeApiAuthenticationException;
 import org.moera.lib.node.exception.MoeraNodeApiNotFoundException;
-import org.moera.lib.node.exception.MoeraNodeApiOperationException;
 import org.moera.lib.node.exception.MoeraNodeApiValidationException;
 import org.moera.lib.node.exception.MoeraNodeException;
 import org.moera.lib.node.types.Scope;
 import org.moera.search.api.MoeraNodeUncheckedException;
 import org.moera.search.api.MoeraNodeUnknownNameException;
+import org.moera.search.api.NodeHealth;
+import org.moera.search.api.NodeRateLimiter;
+import org.moera.search.auth.CarteCache;
 import org.moera.search.config.Config;
-import org.moera.search.config.NotConfiguredException;
 import org.moera.search.data.Database;
 import org.moera.search.global.RequestCounter;
 import org.moera.search.index.TransientIndexException;
-import org.moera.search.util.Util;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import tools.jackson.databind.ObjectMapper;
@@ -31,6 +31,8 @@ public abstract class Job<P, S> implements Runnable {
 
     private static final Logger log = LoggerFactory.getLogger(Job.class);
 
+    private static final int MAX_THROTTLED = 20;
+
     protected P parameters;
     protected S state;
 
@@ -44,13 +46,31 @@ public abstract class Job<P, S> implements Runnable {
 
     private UUID id;
     private int retries;
+    private int throttled;
     private Instant waitUntil;
     private JobRetryPolicy retryPolicy;
     private String jobKey;
+    private JobPriority priority = JobPriority.INTERACTIVE;
+    private int checkpointItems = 1;
+    private Duration checkpointPeriod;
+    private int uncheckpointedItems;
+    private Instant checkpointedAt = Instant.now();
+    private byte[] persistedState;
+    private int persistedRetries;
+    private Instant persistedWaitUntil;
 
     @Inject
     private RequestCounter requestCounter;
 
+    @Inject
+    private NodeHealth nodeHealth;
+
+    @Inject
+    private CarteCache carteCache;
+
+    @Inject
+    private NodeRateLimiter nodeRateLimiter;
+
     public Job() {
         exponentialRetry("PT10S", "PT3H");
     }
@@ -63,13 +83,13 @@ public abstract class Job<P, S> implements Runnable {
         this.parameters = parameters;
     }
 
-    protected abstract void setParameters(String parameters, ObjectMapper objectMapper);
+    protected abstract void setParameters(byte[] parameters, ObjectMapper objectMapper);
 
     S getState() {
         return state;
     }
 
-    protected abstract void setState(String state, ObjectMapper objectMapper);
+    protected abstract void setState(byte[] state, ObjectMapper objectMapper);
 
     void setJobs(Jobs jobs) {
         this.jobs = jobs;
@@ -99,6 +119,14 @@ public abstract class Job<P, S> implements Runnable {
         this.waitUntil = waitUntil;
     }
 
+    JobPriority getPriority() {
+        return priority;
+    }
+
+    void setPriority(JobPriority priority) {
+        this.priority = priority;
+    }
+
     protected JobRetryPolicy getRetryPolicy() {
         return retryPolicy;
     }
@@ -127,6 +155,28 @@ public abstract class Job<P, S> implements Runnable {
         setRetryPolicy(new JobExponentialRetryPolicy(this, minPeriod, maxPeriod));
     }
 
+    // Persist the state on checkpoint() only after the given number of checkpoints or when the period elapses
+    protected void checkpointEvery(int items, Duration period) {
+        checkpointItems = items;
+        checkpointPeriod = period;
+    }
+
+    protected void checkpointEvery(int items, String period) {
+        checkpointEvery(items, Duration.parse(period));
+    }
+
+    boolean isPersisted(byte[] state) {
+        return Arrays.equals(persistedState, state)
+            && persistedRetries == retries
+            && Objects.equals(persistedWaitUntil, waitUntil);
+    }
+
+    void setPersisted(byte[] state) {
+        persistedState = state;
+        persistedRetries = retries;
+        persistedWaitUntil = waitUntil;
+    }
+
     public String getJobKey() {
         return jobKey;
     }
@@ -149,7 +199,23 @@ public abstract class Job<P, S> implements Runnable {
 
     public final void checkpoint() {
         retries = 0;
+        throttled = 0;
+        waitUntil = null;
+        uncheckpointedItems++;
+        boolean due = uncheckpointedItems >= checkpointItems
+            || checkpointPeriod != null && checkpointedAt.plus(checkpointPeriod).isBefore(Instant.now());
+        if (due) {
+            checkpointNow();
+        }
+    }
+
+    // Use before side effects that must not be repeated if the job is restarted
+    public final void checkpointNow() {
+        retries = 0;
+        throttled = 0;
         waitUntil = null;
+        uncheckpointedItems = 0;
+        checkpointedAt = Instant.now();
         jobs.checkpoint(this);
     }
 
@@ -174,6 +240,35 @@ public abstract class Job<P, S> implements Runnable {
         jobs.retrying(this);
     }
 
+    // The target node asks to slow down, try later. Only every MAX_THROTTLED-th postponement in a row is counted
+    // as a retry, so the job does not wait forever for a node that keeps refusing.
+    private void postponeThrottled(Throwable e, Instant until) {
+        throttled++;
+        if (throttled >= MAX_THROTTLED) {
+            throttled = 0;
+            recover(e);
+            return;
+        }
+        log.info("Postponing job {} until the node is available", getJobDescription());
+        waitUntil = until;
+        jobs.retrying(this);
+    }
+
+    // The target node is unhealthy, try later. This is counted as a retry, so the jobs targeting a node that
+    // does not come back give up eventually.
+    private void postponeUnhealthy(Instant until) {
+        retries++;
+        if (!retryPolicy.tryAgain()) {
+            log.info("The node is unavailable for too long, giving up job {}", getJobDescription());
+            failed();
+            return;
+        }
+        Instant retryAt = Instant.now().plus(retryPolicy.waitTime());
+        log.info("Postponing job {} until the node is available", getJobDescription());
+        waitUntil = until.isAfter(retryAt) ? until : retryAt;
+        jobs.retrying(this);
+    }
+
     protected void handleException(Throwable e) {
         if (e instanceof StopJobException ex) {
             switch (ex.type) {
@@ -217,9 +312,7 @@ public abstract class Job<P, S> implements Runnable {
         if (e instanceof MoeraNodeApiNotFoundException) {
             return false;
         }
-        if (e instanceof MoeraNodeApiOperationException ex) {
-            return !ex.getErrorCode().equals("ask.too-many");
-        }
+        // ask.too-many is recoverable, the request rate to the node is lowered
         return true;
     }
 
@@ -230,24 +323,49 @@ public abstract class Job<P, S> implements Runnable {
     @Override
     public final void run() {
         try (var ignored = requestCounter.allot()) {
-            try (var ignored2 = database.open()) {
-                started();
-
-                boolean exceptionThrown = false;
-                try {
-                    execute();
-                } catch (Throwable e) {
-                    handleException(e);
-                    exceptionThrown = true;
-                } finally {
-                    if (!exceptionThrown) {
-                        succeeded();
+            String targetNodeName = getTargetNodeName();
+            Instant blockedUntil = nodeHealth.admit(targetNodeName);
+            if (blockedUntil != null) {
+                try (var ignored2 = database.open()) {
+                    postponeUnhealthy(blockedUntil);
+                }
+                return;
+            }
+
+            NodeHealth.Outcome outcome = NodeHealth.Outcome.SUCCESS;
+            try (var ignored2 = jobs.acquireNode(targetNodeName, priority)) {
+                try (var ignored3 = database.open()) {
+                    started();
+
+                    boolean exceptionThrown = false;
+                    try {
+                        execute();
+                    } catch (Throwable e) {
+                        outcome = getNodeOutcome(e);
+                        if (outcome == NodeHealth.Outcome.TOO_MANY) {
+                            // Wait for the node instead of failing. The rate is lowered already by NodeApi,
+                            // so the job waits for a permit at the lowered rate.
+                            postponeThrottled(e, Instant.now().plus(nodeRateLimiter.nextPermitDelay(targetNodeName)));
+                        } else {
+                            handleException(e);
+                        }
+                        exceptionThrown = true;
+                    } finally {
+                        if (!exceptionThrown) {
+                            succeeded();
+                        }
                     }
                 }
+            } finally {
+                nodeHealth.report(targetNodeName, outcome);
             }
         }
     }
 
+    private NodeHealth.Outcome getNodeOutcome(Throwable e) {
+        return e instanceof StopJobException ? NodeHealth.Outcome.SUCCESS : NodeHealth.getOutcome(e);
+    }
+
     protected abstract void execute() throws Exception;
 
     protected void started() {
@@ -271,11 +389,13 @@ public abstract class Job<P, S> implements Runnable {
         return this.getClass().getSimpleName();
     }
 
+    // The remote node the job talks to, concurrency of jobs targeting the same node may be limited
+    protected String getTargetNodeName() {
+        return null;
+    }
+
     protected PrivateKey signingKey() {
-        if (config.getSigningKey() == null) {
-            throw new NotConfiguredException("Signing key is not set in the configuration file (node.signing-key)");
-        }
-        return CryptoUtil.rawToPrivateKey(Util.hexdecode(config.getSigningKey()));
+        return carteCache.getSigningKey();
     }
 
     protected String generateCarte(String targetNodeName, Scope clientScope) {
@@ -284,10 +404,7 @@ public abstract class Job<P, S> implements Runnable {
 
     protected String generateCarte(String targetNodeName, Scope clientScope, Scope adminScope) {
         try {
-            return Carte.generate(
-                config.getNodeName(), jobs.getLocalAddresses(), Instant.now(), signingKey(), targetNodeName,
-                clientScope.getMask(), adminScope.getMask()
-            );
+            return carteCache.get(jobs.getLocalAddresses(), targetNodeName, clientScope, adminScope);
         } catch (Exception e) {
             log.error("Error generating carte");
             throw e;
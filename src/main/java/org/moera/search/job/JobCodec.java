@@ -0,0 +1,49 @@
+package org.moera.search.job;
+
+import java.util.Arrays;
+import jakarta.annotation.PostConstruct;
+import jakarta.inject.Inject;
+
+import org.moera.search.config.Config;
+import org.springframework.stereotype.Component;
+import tools.jackson.databind.DeserializationFeature;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.dataformat.smile.SmileMapper;
+
+// Encodes parameters and state of jobs in the configured format. Both formats are recognized when decoding,
+// so jobs stored before changing the format (and older jobs stored as JSON strings) are still loaded.
+@Component
+public class JobCodec {
+
+    private static final byte[] SMILE_HEADER = {':', ')', '\n'};
+
+    private final SmileMapper smileMapper = SmileMapper.builder()
+        .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+        .build();
+    private boolean binary;
+
+    @Inject
+    private Config config;
+
+    @Inject
+    private ObjectMapper objectMapper;
+
+    @PostConstruct
+    public void init() {
+        binary = !"json".equalsIgnoreCase(config.getJobs().getCodec());
+    }
+
+    public byte[] encode(Object value) {
+        if (value == null) {
+            return null;
+        }
+        return binary ? smileMapper.writeValueAsBytes(value) : objectMapper.writeValueAsBytes(value);
+    }
+
+    public ObjectMapper getMapper(byte[] encoded) {
+        boolean smile = encoded.length >= SMILE_HEADER.length
+            && Arrays.equals(encoded, 0, SMILE_HEADER.length, SMILE_HEADER, 0, SMILE_HEADER.length);
+        return smile ? smileMapper : objectMapper;
+    }
+
+}
@@ -0,0 +1,100 @@
+package org.moera.search.job;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.UUID;
+
+// Keys, types and target nodes of all persistent jobs, including those that are not loaded
+class JobIndex {
+
+    private static final class Entry {
+
+        public final String jobType;
+        public final String jobKey;
+        public String target;
+
+        Entry(String jobType, String jobKey, String target) {
+            this.jobType = jobType;
+            this.jobKey = jobKey;
+            this.target = target;
+        }
+
+    }
+
+    private final Map<UUID, Entry> jobs = new HashMap<>();
+    private final NavigableMap<String, Integer> keyCounts = new TreeMap<>();
+    private final Map<String, Integer> typeCounts = new HashMap<>();
+    private final Map<String, Integer> targetCounts = new HashMap<>();
+
+    public synchronized void add(UUID jobId, String jobType, String jobKey, String target) {
+        if (jobId == null) {
+            return;
+        }
+        var entry = jobs.get(jobId);
+        if (entry != null) {
+            // The target may be unknown until the job is loaded
+            if (entry.target == null && target != null) {
+                entry.target = target;
+                targetCounts.merge(targetKey(entry.jobType, target), 1, Integer::sum);
+            }
+            return;
+        }
+        entry = new Entry(jobType, jobKey, target);
+        jobs.put(jobId, entry);
+        if (jobKey != null) {
+            keyCounts.merge(jobKey, 1, Integer::sum);
+        }
+        if (jobType != null) {
+            typeCounts.merge(jobType, 1, Integer::sum);
+        }
+        if (target != null) {
+            targetCounts.merge(targetKey(jobType, target), 1, Integer::sum);
+        }
+    }
+
+    // Returns the job key, if no more jobs with this key are left
+    public synchronized String remove(UUID jobId) {
+        if (jobId == null) {
+            return null;
+        }
+        var entry = jobs.remove(jobId);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.jobType != null) {
+            typeCounts.computeIfPresent(entry.jobType, (k, c) -> c > 1 ? c - 1 : null);
+        }
+        if (entry.target != null) {
+            targetCounts.computeIfPresent(targetKey(entry.jobType, entry.target), (k, c) -> c > 1 ? c - 1 : null);
+        }
+        if (entry.jobKey == null) {
+            return null;
+        }
+        Integer count = keyCounts.computeIfPresent(entry.jobKey, (k, c) -> c > 1 ? c - 1 : null);
+        return count == null ? entry.jobKey : null;
+    }
+
+    public synchronized boolean exists(String jobKey) {
+        return keyCounts.containsKey(jobKey);
+    }
+
+    public synchronized boolean existsByPrefix(String jobKeyPrefix) {
+        String key = keyCounts.ceilingKey(jobKeyPrefix);
+        return key != null && key.startsWith(jobKeyPrefix);
+    }
+
+    public synchronized int countByType(String jobType) {
+        return typeCounts.getOrDefault(jobType, 0);
+    }
+
+    public synchronized boolean isTargeted(String jobType, String target) {
+        return targetCounts.containsKey(targetKey(jobType, target));
+    }
+
+    private static String targetKey(String jobType, String target) {
+        return jobType + " " + target;
+    }
+
+}
@@ -0,0 +1,18 @@
+package org.moera.search.job;
+
+import org.springframework.context.ApplicationEvent;
+
+public class JobKeyReleasedEvent extends ApplicationEvent {
+
+    private final String jobKey;
+
+    public JobKeyReleasedEvent(Object source, String jobKey) {
+        super(source);
+        this.jobKey = jobKey;
+    }
+
+    public String getJobKey() {
+        return jobKey;
+    }
+
+}
@@ -0,0 +1,9 @@
+package org.moera.search.job;
+
+// Jobs of different priorities are executed by separate executors, so bulk jobs cannot delay interactive ones
+public enum JobPriority {
+
+    INTERACTIVE,
+    BULK
+
+}
@@ -0,0 +1,55 @@
+package org.moera.search.job;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// Constructors of job types, every type is resolved only once
+class JobTypes {
+
+    private static final Logger log = LoggerFactory.getLogger(JobTypes.class);
+
+    private final Map<String, Optional<Constructor<? extends Job<?, ?>>>> constructors = new ConcurrentHashMap<>();
+
+    public void resolve(String jobType) {
+        if (jobType != null) {
+            constructors.computeIfAbsent(jobType, this::findConstructor);
+        }
+    }
+
+    public Job<?, ?> create(String jobType) {
+        var constructor = constructors.computeIfAbsent(jobType, this::findConstructor);
+        if (constructor.isEmpty()) {
+            return null;
+        }
+        try {
+            return constructor.get().newInstance();
+        } catch (InstantiationException | IllegalAccessException | InvocationTargetException e) {
+            log.error("Cannot create a job", e);
+            return null;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Optional<Constructor<? extends Job<?, ?>>> findConstructor(String jobType) {
+        try {
+            var klass = Class.forName(jobType);
+            if (!Job.class.isAssignableFrom(klass)) {
+                log.error("{} is not a job class", jobType);
+                return Optional.empty();
+            }
+            return Optional.of((Constructor<? extends Job<?, ?>>) klass.getConstructor());
+        } catch (NoSuchMethodException e) {
+            log.error("Cannot find a job constructor", e);
+        } catch (ClassNotFoundException e) {
+            log.error("Cannot find a job class", e);
+        }
+        return Optional.empty();
+    }
+
+}
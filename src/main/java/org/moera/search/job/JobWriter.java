@@ -0,0 +1,197 @@
+package org.moera.search.job;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import jakarta.annotation.PreDestroy;
+import jakarta.inject.Inject;
+
+import org.moera.search.config.Config;
+import org.moera.search.data.Database;
+import org.moera.search.data.DatabaseInitializedEvent;
+import org.moera.search.data.JobRepository;
+import org.moera.search.data.PendingJob;
+import org.moera.search.global.RequestCounter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+// Collects changes of the persistent jobs and writes them to the database in batches
+@Component
+public class JobWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(JobWriter.class);
+
+    private Map<UUID, PendingJob> created = new LinkedHashMap<>();
+    private Map<UUID, PendingJob> updated = new LinkedHashMap<>();
+    private Set<UUID> deleted = new LinkedHashSet<>();
+    private final Object lock = new Object();
+    private final Object flushLock = new Object();
+
+    @Inject
+    private Config config;
+
+    @Inject
+    private RequestCounter requestCounter;
+
+    @Inject
+    private Database database;
+
+    @Inject
+    private JobRepository jobRepository;
+
+    @EventListener(DatabaseInitializedEvent.class)
+    public void init() {
+        if (config.getJobs().getPersistPeriod() > 0) {
+            Thread.ofPlatform().name("job-writer").daemon().start(this::run);
+        }
+    }
+
+    public void create(UUID id, String jobType, String jobKey, String priority, byte[] parameters, byte[] state) {
+        var job = new PendingJob();
+        job.setId(id);
+        job.setJobType(jobType);
+        job.setJobKey(jobKey);
+        job.setPriority(priority);
+        job.setParameters(parameters);
+        job.setState(state);
+        synchronized (lock) {
+            created.put(id, job);
+        }
+        writeThrough();
+    }
+
+    public void update(UUID id, byte[] state, int retries, Instant waitUntil) {
+        synchronized (lock) {
+            var job = created.get(id);
+            if (job == null) {
+                job = updated.computeIfAbsent(id, k -> new PendingJob());
+                job.setId(id);
+            }
+            job.setState(state);
+            job.setRetries(retries);
+            job.setWaitUntil(waitUntil != null ? waitUntil.toEpochMilli() : null);
+        }
+        writeThrough();
+    }
+
+    public void delete(UUID id) {
+        synchronized (lock) {
+            updated.remove(id);
+            if (created.remove(id) == null) {
+                deleted.add(id);
+            }
+        }
+        writeThrough();
+    }
+
+    private void writeThrough() {
+        if (config.getJobs().getPersistPeriod() <= 0) {
+            flush();
+        }
+    }
+
+    // Must be called with the database session open. Returns false if the changes were not written and are left
+    // for the next flush.
+    public boolean flush() {
+        synchronized (flushLock) {
+            Map<UUID, PendingJob> toCreate;
+            Map<UUID, PendingJob> toUpdate;
+            Set<UUID> toDelete;
+            synchronized (lock) {
+                if (created.isEmpty() && updated.isEmpty() && deleted.isEmpty()) {
+                    return true;
+                }
+                toCreate = created;
+                toUpdate = updated;
+                toDelete = deleted;
+                created = new LinkedHashMap<>();
+                updated = new LinkedHashMap<>();
+                deleted = new LinkedHashSet<>();
+            }
+
+            log.debug(
+                "Writing jobs: {} created, {} updated, {} deleted", toCreate.size(), toUpdate.size(), toDelete.size()
+            );
+            try {
+                database.writeNoResult(() -> {
+                    if (!toCreate.isEmpty()) {
+                        jobRepository.createAll(new ArrayList<>(toCreate.values()));
+                    }
+                    if (!toUpdate.isEmpty()) {
+                        jobRepository.updateStateAll(new ArrayList<>(toUpdate.values()));
+                    }
+                    if (!toDelete.isEmpty()) {
+                        jobRepository.deleteAll(new ArrayList<>(toDelete));
+                    }
+                });
+            } catch (Exception e) {
+                log.error("Error writing jobs, will retry", e);
+                requeue(toCreate, toUpdate, toDelete);
+                return false;
+            }
+            return true;
+        }
+    }
+
+    // The failed changes are merged back to be written by the next flush, changes made after them take precedence
+    private void requeue(Map<UUID, PendingJob> toCreate, Map<UUID, PendingJob> toUpdate, Set<UUID> toDelete) {
+        synchronized (lock) {
+            toCreate.forEach((id, job) -> {
+                if (deleted.remove(id) || created.containsKey(id)) {
+                    return;
+                }
+                var newer = updated.remove(id);
+                if (newer != null) {
+                    job.setState(newer.getState());
+                    job.setRetries(newer.getRetries());
+                    job.setWaitUntil(newer.getWaitUntil());
+                }
+                created.put(id, job);
+            });
+            toUpdate.forEach((id, job) -> {
+                if (!deleted.contains(id) && !created.containsKey(id)) {
+                    updated.putIfAbsent(id, job);
+                }
+            });
+            toDelete.forEach(id -> {
+                updated.remove(id);
+                deleted.add(id);
+            });
+        }
+    }
+
+    private void run() {
+        while (true) {
+            try {
+                Thread.sleep(config.getJobs().getPersistPeriod());
+                flushInSession();
+            } catch (InterruptedException e) {
+                return;
+            } catch (Exception e) {
+                log.error("Error writing jobs", e);
+            }
+        }
+    }
+
+    private void flushInSession() {
+        try (var ignored = requestCounter.allot()) {
+            try (var ignored2 = database.open()) {
+                flush();
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (database.isReady()) {
+            flushInSession();
+        }
+    }
+
+}
@@ -6,18 +6,18 @@ import java.net.InetAddress;
 import java.net.UnknownHostException;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
-import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.PriorityBlockingQueue;
 import java.util.concurrent.RejectedExecutionException;
+import jakarta.annotation.PreDestroy;
 import jakarta.inject.Inject;
 import jakarta.json.JsonException;
 
 import org.moera.lib.util.LogUtil;
+import org.moera.search.Workload;
 import org.moera.search.config.Config;
 import org.moera.search.config.NotConfiguredException;
 import org.moera.search.data.Database;
@@ -25,6 +25,8 @@ import org.moera.search.data.DatabaseInitializedEvent;
 import org.moera.search.data.JobRepository;
 import org.moera.search.data.PendingJob;
 import org.moera.search.global.RequestCounter;
+import org.moera.search.util.ParametrizedSemaphore;
+import org.moera.search.util.TimerWheel;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Qualifier;
@@ -34,7 +36,6 @@ import org.springframework.context.event.EventListener;
 import org.springframework.core.task.TaskExecutor;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import tools.jackson.databind.ObjectMapper;
 
 @Service
 public class Jobs {
@@ -42,12 +43,22 @@ public class Jobs {
     private static final Logger log = LoggerFactory.getLogger(Jobs.class);
 
     private final Map<UUID, Job<?, ?>> all = new ConcurrentHashMap<>();
-    private final BlockingQueue<Job<?, ?>> pending =
-            new PriorityBlockingQueue<>(8, Comparator.comparing(Job::getWaitUntil));
+    private final JobIndex index = new JobIndex();
+    private final JobTypes jobTypes = new JobTypes();
+    private final TimerWheel timerWheel = new TimerWheel(Workload.JOBS_TIMER_TICK);
 
     private boolean ready = false;
+    // ID of the last loaded job, null if all pending jobs are loaded
+    private volatile String loadAfter;
+    // Jobs to be started after this moment are loaded by timer
+    private long loadBefore;
+    private final Object loadLock = new Object();
+    // Jobs that were due to be reloaded by timer when there was no space for them
+    private final Set<UUID> deferred = ConcurrentHashMap.newKeySet();
 
     private List<InetAddress> localAddresses;
+    private ParametrizedSemaphore<String> nodeSemaphore = new ParametrizedSemaphore<>(0);
+    private ParametrizedSemaphore<String> bulkNodeSemaphore = new ParametrizedSemaphore<>(0);
 
     @Inject
     private Config config;
@@ -65,12 +76,19 @@ public class Jobs {
     private JobRepository jobRepository;
 
     @Inject
-    private ObjectMapper objectMapper;
+    private JobWriter jobWriter;
+
+    @Inject
+    private JobCodec jobCodec;
 
     @Inject
     @Qualifier("jobTaskExecutor")
     private TaskExecutor taskExecutor;
 
+    @Inject
+    @Qualifier("bulkJobTaskExecutor")
+    private TaskExecutor bulkTaskExecutor;
+
     @Inject
     private AutowireCapableBeanFactory autowireCapableBeanFactory;
 
@@ -78,10 +96,23 @@ public class Jobs {
     public void init() {
         ready = true;
         localAddresses = getLocalAddrs();
+        if (config.getPools().isJobVirtual()) {
+            // Threads are cheap, so the number of concurrent jobs is limited by the load on every remote node
+            nodeSemaphore = new ParametrizedSemaphore<>(config.getPools().getJobPerNode());
+            bulkNodeSemaphore = new ParametrizedSemaphore<>(config.getPools().getJobPerNode());
+        }
+        timerWheel.start("job-timer");
+        loadBefore = Instant.now().plus(1, ChronoUnit.HOURS).toEpochMilli();
+        loadIndex();
         load();
         applicationEventPublisher.publishEvent(new JobsManagerInitializedEvent(this));
     }
 
+    @PreDestroy
+    public void shutdown() {
+        timerWheel.stop();
+    }
+
     private List<InetAddress> getLocalAddrs() {
         if (config.getAddress() != null) {
             try {
@@ -115,19 +146,33 @@ public class Jobs {
         return localAddresses;
     }
 
+    ParametrizedSemaphore<String>.AutoRelease acquireNode(String nodeName, JobPriority priority) {
+        return priority == JobPriority.BULK ? bulkNodeSemaphore.acquire(nodeName) : nodeSemaphore.acquire(nodeName);
+    }
+
     public <P, T extends Job<P, ?>> UUID run(Class<T> klass, P parameters) {
-        return run(klass, parameters, null, true);
+        return run(klass, parameters, null, JobPriority.INTERACTIVE, true);
+    }
+
+    public <P, T extends Job<P, ?>> UUID run(Class<T> klass, P parameters, JobPriority priority) {
+        return run(klass, parameters, null, priority, true);
     }
 
     public <P, T extends Job<P, ?>> UUID run(Class<T> klass, P parameters, String jobKey) {
-        return run(klass, parameters, jobKey, true);
+        return run(klass, parameters, jobKey, JobPriority.INTERACTIVE, true);
+    }
+
+    public <P, T extends Job<P, ?>> UUID run(Class<T> klass, P parameters, String jobKey, JobPriority priority) {
+        return run(klass, parameters, jobKey, priority, true);
     }
 
     public <P, T extends Job<P, ?>> UUID runNoPersist(Class<T> klass, P parameters) {
-        return run(klass, parameters, null, false);
+        return run(klass, parameters, null, JobPriority.INTERACTIVE, false);
     }
 
-    private <P, T extends Job<P, ?>> UUID run(Class<T> klass, P parameters, String jobKey, boolean persistent) {
+    private <P, T extends Job<P, ?>> UUID run(
+        Class<T> klass, P parameters, String jobKey, JobPriority priority, boolean persistent
+    ) {
         if (!ready) {
             throw new JobsManagerNotInitializedException();
         }
@@ -146,18 +191,20 @@ public class Jobs {
 
         job.setParameters(parameters);
         job.setJobKey(jobKey);
+        job.setPriority(priority);
         job.setJobs(this);
 
         if (persistent) {
             persist(job);
             if (job.getId() != null) {
                 all.put(job.getId(), job);
+                index.add(job.getId(), klass.getCanonicalName(), jobKey, job.getTargetNodeName());
             }
         }
 
         autowireCapableBeanFactory.autowireBean(job);
         try {
-            taskExecutor.execute(job);
+            getExecutor(job).execute(job);
         } catch (RejectedExecutionException e) {
             // No space in the executor, wait a bit
             rejectedExecution(job);
@@ -167,72 +214,176 @@ public class Jobs {
     }
 
     public int countRunning(Class<?> klass) {
-        return jobRepository.countRunningByType(klass.getCanonicalName());
+        return index.countByType(klass.getCanonicalName());
+    }
+
+    // Whether a job of the given class that targets the node exists
+    public boolean isRunningFor(Class<?> klass, String nodeName) {
+        return index.isTargeted(klass.getCanonicalName(), nodeName);
     }
 
     public boolean keyExists(String jobKey) {
         return jobKey.endsWith("*")
-            ? jobRepository.keysByPrefixExist(jobKey.substring(0, jobKey.length() - 1))
-            : jobRepository.keyExists(jobKey);
+            ? index.existsByPrefix(jobKey.substring(0, jobKey.length() - 1))
+            : index.exists(jobKey);
     }
 
-    @Scheduled(fixedDelayString = "PT1H")
-    public void load() {
-        if (!ready) {
-            return;
+    // Index of all jobs, including those that are not going to be loaded soon. Jobs that are going to be retried
+    // later are loaded by timer.
+    private void loadIndex() {
+        try (var ignored = requestCounter.allot()) {
+            try (var ignored2 = database.open()) {
+                log.info("Loading job index");
+
+                String afterId = "";
+                while (true) {
+                    String after = afterId;
+                    var summaries = database.read(() ->
+                        jobRepository.findAllSummaries(after, Workload.JOBS_LOAD_PAGE_SIZE)
+                    );
+                    for (var summary : summaries) {
+                        index.add(summary.id(), summary.jobType(), summary.jobKey(), summary.target());
+                        jobTypes.resolve(summary.jobType());
+                        if (summary.waitUntil() != null && summary.waitUntil() >= loadBefore) {
+                            scheduleReload(summary.id(), Instant.ofEpochMilli(summary.waitUntil()));
+                        }
+                    }
+                    if (summaries.size() < Workload.JOBS_LOAD_PAGE_SIZE) {
+                        break;
+                    }
+                    afterId = summaries.get(summaries.size() - 1).id().toString();
+                }
+            }
         }
+    }
 
+    private void load() {
         try (var ignored = requestCounter.allot()) {
             try (var ignored2 = database.open()) {
                 log.info("Loading pending jobs");
 
-                long timestamp = Instant.now().plus(1, ChronoUnit.HOURS).toEpochMilli();
-                database.read(() -> jobRepository.findAllBefore(timestamp)).forEach(this::load);
+                synchronized (loadLock) {
+                    loadAfter = "";
+                    loadPages();
+                }
             }
         }
     }
 
+    // Continues loading the jobs that did not fit into memory, when some of the loaded ones are finished
+    @Scheduled(fixedDelayString = Workload.JOBS_LOAD_RESUME_PERIOD)
+    public void resumeLoad() {
+        if (!ready || loadAfter == null && deferred.isEmpty() || all.size() >= Workload.JOBS_MAX_LOADED) {
+            return;
+        }
+
+        try (var ignored = requestCounter.allot()) {
+            try (var ignored2 = database.open()) {
+                log.info("Resuming loading pending jobs");
+
+                jobWriter.flush();
+                synchronized (loadLock) {
+                    loadDeferred();
+                    loadPages();
+                }
+            }
+        }
+    }
+
+    private void loadPages() {
+        while (loadAfter != null && all.size() < Workload.JOBS_MAX_LOADED) {
+            String after = loadAfter;
+            var page = database.read(() ->
+                jobRepository.findAllBefore(loadBefore, after, Workload.JOBS_LOAD_PAGE_SIZE)
+            );
+            page.forEach(this::load);
+            loadAfter = page.size() < Workload.JOBS_LOAD_PAGE_SIZE
+                ? null
+                : page.get(page.size() - 1).getId().toString();
+        }
+        if (loadAfter != null) {
+            log.info("Too many pending jobs, the rest will be loaded later");
+        }
+    }
+
+    private void loadDeferred() {
+        var iterator = deferred.iterator();
+        while (iterator.hasNext() && all.size() < Workload.JOBS_MAX_LOADED) {
+            UUID id = iterator.next();
+            iterator.remove();
+            database.read(() -> jobRepository.findById(id)).ifPresent(this::load);
+        }
+    }
+
+    private void scheduleReload(UUID id, Instant at) {
+        timerWheel.schedule(at, () -> {
+            try {
+                taskExecutor.execute(() -> reload(id));
+            } catch (RejectedExecutionException e) {
+                // No space in the executor, wait a bit
+                scheduleReload(id, Instant.now().plus(10, ChronoUnit.SECONDS));
+            }
+        });
+    }
+
+    private void reload(UUID id) {
+        if (all.containsKey(id)) {
+            return;
+        }
+        if (all.size() >= Workload.JOBS_MAX_LOADED) {
+            // Leave the job in the database until there is space for it
+            deferred.add(id);
+            return;
+        }
+
+        try (var ignored = requestCounter.allot()) {
+            try (var ignored2 = database.open()) {
+                jobWriter.flush();
+                database.read(() -> jobRepository.findById(id)).ifPresent(this::load);
+            }
+        } catch (Exception e) {
+            log.error("Error loading job {}", LogUtil.format(id), e);
+        }
+    }
+
     private void load(PendingJob pendingJob) {
         if (all.containsKey(pendingJob.getId())) {
             return;
         }
 
-        Job<?, ?> job = null;
-        try {
-            job = (Job<?, ?>) Class.forName(pendingJob.getJobType()).getConstructor().newInstance();
-        } catch (InstantiationException | IllegalAccessException | InvocationTargetException e) {
-            log.error("Cannot create a job", e);
-        } catch (NoSuchMethodException e) {
-            log.error("Cannot find a job constructor", e);
-        } catch (ClassNotFoundException e) {
-            log.error("Cannot find a job class", e);
-        }
+        Job<?, ?> job = jobTypes.create(pendingJob.getJobType());
         if (job == null) {
             return;
         }
 
         try {
-            job.setParameters(pendingJob.getParameters(), objectMapper);
+            job.setParameters(pendingJob.getParameters(), jobCodec.getMapper(pendingJob.getParameters()));
             if (pendingJob.getState() != null) {
-                job.setState(pendingJob.getState(), objectMapper);
+                job.setState(pendingJob.getState(), jobCodec.getMapper(pendingJob.getState()));
             }
         } catch (JsonException e) {
             log.error("Cannot load a job", e);
         }
 
         job.setId(pendingJob.getId());
+        job.setJobKey(pendingJob.getJobKey());
+        job.setPriority(pendingJob.getPriority() != null
+            ? JobPriority.valueOf(pendingJob.getPriority())
+            : JobPriority.INTERACTIVE);
         job.setRetries(pendingJob.getRetries());
         job.setWaitUntil(pendingJob.getWaitUntil() != null ? Instant.ofEpochMilli(pendingJob.getWaitUntil()) : null);
+        job.setPersisted(pendingJob.getState());
         job.setJobs(this);
 
         autowireCapableBeanFactory.autowireBean(job);
 
         all.put(job.getId(), job);
+        index.add(job.getId(), pendingJob.getJobType(), job.getJobKey(), job.getTargetNodeName());
         if (job.getWaitUntil() != null && job.getWaitUntil().isAfter(Instant.now())) {
-            pending.add(job);
+            schedule(job);
         } else {
             try {
-                taskExecutor.execute(job);
+                getExecutor(job).execute(job);
             } catch (Exception e) {
                 // No space in the executor, wait a bit
                 rejectedExecution(job);
@@ -242,27 +393,30 @@ public class Jobs {
 
     private void persist(Job<?, ?> job) {
         try {
-            String parameters = objectMapper.writeValueAsString(job.getParameters());
-            String state = job.getState() != null ? objectMapper.writeValueAsString(job.getState()) : null;
-            var id = database.write(
-                () -> jobRepository.create(job.getClass().getCanonicalName(), job.getJobKey(), parameters, state)
+            byte[] parameters = jobCodec.encode(job.getParameters());
+            byte[] state = jobCodec.encode(job.getState());
+            UUID id = UUID.randomUUID();
+            jobWriter.create(
+                id, job.getClass().getCanonicalName(), job.getJobKey(), job.getPriority().name(), parameters, state
             );
             job.setId(id);
+            job.setPersisted(state);
         } catch (Exception e) {
             log.error("Error storing job", e);
         }
     }
 
-    private void update(Job<?, ?> job) {
+    private void update(Job<?, ?> job, boolean skipUnchanged) {
         if (job.getId() == null) {
             return;
         }
         try {
-            String state = job.getState() != null ? objectMapper.writeValueAsString(job.getState()) : null;
-            Long waitUntil = job.getWaitUntil() != null ? job.getWaitUntil().toEpochMilli() : null;
-            database.writeNoResult(
-                () -> jobRepository.updateState(job.getId(), state, job.getRetries(), waitUntil)
-            );
+            byte[] state = jobCodec.encode(job.getState());
+            if (skipUnchanged && job.isPersisted(state)) {
+                return;
+            }
+            jobWriter.update(job.getId(), state, job.getRetries(), job.getWaitUntil());
+            job.setPersisted(state);
         } catch (Exception e) {
             log.error("Error saving job {}", LogUtil.format(job.getId()), e);
         }
@@ -273,48 +427,56 @@ public class Jobs {
             return;
         }
         all.remove(job.getId());
+        String releasedKey = index.remove(job.getId());
         try {
-            database.writeNoResult(
-                () -> jobRepository.delete(job.getId())
-            );
+            jobWriter.delete(job.getId());
         } catch (Exception e) {
             log.error("Error deleting job {}", LogUtil.format(job.getId()), e);
         }
+        if (releasedKey != null) {
+            applicationEventPublisher.publishEvent(new JobKeyReleasedEvent(this, releasedKey));
+        }
+    }
+
+    // Writes all pending changes of jobs to the database, must be called with the database session open.
+    // Returns false if the changes were not written.
+    public boolean flush() {
+        return jobWriter.flush();
     }
 
     void checkpoint(Job<?, ?> job) {
-        update(job);
+        update(job, true);
     }
 
     void retrying(Job<?, ?> job) {
+        update(job, false);
         if (job.getId() == null || job.getWaitUntil().isBefore(Instant.now().plus(1, ChronoUnit.HOURS))) {
-            pending.add(job);
+            schedule(job);
         } else {
             // otherwise, it will be destroyed and reconstructed from the database when retry time arrives
             all.remove(job.getId());
+            scheduleReload(job.getId(), job.getWaitUntil());
         }
-        update(job);
+    }
+
+    private TaskExecutor getExecutor(Job<?, ?> job) {
+        return job.getPriority() == JobPriority.BULK ? bulkTaskExecutor : taskExecutor;
     }
 
     private void rejectedExecution(Job<?, ?> job) {
         job.setWaitUntil(Instant.now().plus(10, ChronoUnit.SECONDS));
-        pending.add(job);
+        schedule(job);
     }
 
-    @Scheduled(fixedDelayString = "PT10S")
-    public void restartPending() {
-        var job = pending.peek();
-        while (job != null && job.getWaitUntil().isBefore(Instant.now())) {
-            pending.remove();
+    private void schedule(Job<?, ?> job) {
+        timerWheel.schedule(job.getWaitUntil(), () -> {
             try {
-                taskExecutor.execute(job);
+                getExecutor(job).execute(job);
             } catch (RejectedExecutionException e) {
                 // No space in the executor, wait a bit
                 rejectedExecution(job);
-                return;
             }
-            job = pending.peek();
-        }
+        });
     }
 
 }
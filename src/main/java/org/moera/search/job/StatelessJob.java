@@ -5,7 +5,7 @@ import tools.jackson.databind.ObjectMapper;
 public abstract class StatelessJob<P> extends Job<P, Object> {
 
     @Override
-    protected void setState(String state, ObjectMapper objectMapper) {
+    protected void setState(byte[] state, ObjectMapper objectMapper) {
         this.state = null;
     }
 
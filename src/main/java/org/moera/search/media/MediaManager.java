@@ -25,6 +25,7 @@ import org.moera.search.data.Database;
 import org.moera.search.data.MediaFile;
 import org.moera.search.data.MediaFileRepository;
 import org.moera.search.data.MediaLocation;
+import org.moera.search.data.UnitOfWork;
 import org.moera.search.util.BodyUtil;
 import org.moera.search.util.DigestingOutputStream;
 import org.moera.search.util.MediaAttachmentUtil;
@@ -90,9 +91,12 @@ public class MediaManager {
         String nodeName, String id, TemporaryFile tmpFile, int maxSize
     ) throws MoeraNodeException {
         var result = new AtomicReference<TemporaryMediaFile>();
-        nodeApi.at(nodeName).getPublicMedia(id, null, null, responseBody ->
-            result.set(receiveMediaFile(nodeName, id, responseBody, tmpFile, maxSize))
-        );
+        nodeApi.call(nodeName, node -> {
+            node.getPublicMedia(id, null, null, responseBody ->
+                result.set(receiveMediaFile(nodeName, id, responseBody, tmpFile, maxSize))
+            );
+            return null;
+        });
         return result.get();
     }
 
@@ -157,6 +161,15 @@ public class MediaManager {
     }
 
     public void downloadAndSaveAvatar(String nodeName, AvatarImage avatar, AvatarSaver avatarSaver) {
+        var work = database.unitOfWork();
+        downloadAndSaveAvatar(nodeName, avatar, avatarSaver, work);
+        work.commit();
+    }
+
+    public void downloadAndSaveAvatar(String nodeName, AvatarImage avatar, AvatarSaver avatarSaver, UnitOfWork work) {
+        if (avatar == null || avatar.getMediaId() == null) {
+            return;
+        }
         database.writeNoResult(() -> {
             try {
                 downloadAvatar(nodeName, avatar);
@@ -164,10 +177,9 @@ public class MediaManager {
                 throw new MoeraNodeUncheckedException(e);
             }
         });
-        if (avatar != null && AvatarImageUtil.getMediaFile(avatar) != null) {
-            database.writeNoResult(() ->
-                avatarSaver.save(AvatarImageUtil.getMediaFile(avatar).getId(), avatar.getShape())
-            );
+        if (AvatarImageUtil.getMediaFile(avatar) != null) {
+            String avatarId = AvatarImageUtil.getMediaFile(avatar).getId();
+            work.add(() -> avatarSaver.save(avatarId, avatar.getShape()));
         }
     }
 
@@ -180,11 +192,13 @@ public class MediaManager {
         int maxSize
     ) throws MoeraNodeException {
         var result = new AtomicReference<TemporaryMediaFile>();
-        var node = carte != null ? nodeApi.at(nodeName, carte) : nodeApi.at(nodeName);
-        node.getPrivateMedia(
-            id, null, null, grant, null,
-            responseBody -> result.set(receiveMediaFile(nodeName, id, responseBody, tmpFile, maxSize))
-        );
+        nodeApi.call(nodeName, carte, node -> {
+            node.getPrivateMedia(
+                id, null, null, grant, null,
+                responseBody -> result.set(receiveMediaFile(nodeName, id, responseBody, tmpFile, maxSize))
+            );
+            return null;
+        });
         return result.get();
     }
 
@@ -194,8 +208,7 @@ public class MediaManager {
         String id,
         String grant
     ) throws MoeraNodeException {
-        var node = carte != null ? nodeApi.at(nodeName, carte) : nodeApi.at(nodeName);
-        return node.getPrivateMediaInfo(id, grant);
+        return nodeApi.call(nodeName, carte, node -> node.getPrivateMediaInfo(id, grant));
     }
 
     private byte[] getPrivateMediaDigest(
@@ -369,7 +382,8 @@ public class MediaManager {
         Body body,
         List<MediaAttachment> media,
         Supplier<MediaLocation> mediaPreviewGetter,
-        MediaPreviewSaver mediaPreviewSaver
+        MediaPreviewSaver mediaPreviewSaver,
+        UnitOfWork work
     ) {
         var attachment = BodyUtil.findMediaForPreview(body, media);
         var mediaId = attachment != null ? MediaAttachmentUtil.mediaId(attachment) : null;
@@ -378,13 +392,13 @@ public class MediaManager {
         if (Objects.equals(mediaPreview, mediaId != null ? new MediaLocation(mediaNodeName, mediaId) : null)) {
             return;
         }
-        database.writeNoResult(() -> {
-            try {
-                MediaFile mediaFile = null;
-                if (attachment != null) {
+        MediaFile mediaFile = null;
+        if (attachment != null) {
+            mediaFile = database.write(() -> {
+                try {
                     String carte = carteSupplier.get();
                     var info = resolvePrivateMediaInfo(nodeName, carte, attachment);
-                    mediaFile = info != null
+                    return info != null
                         ? previewPrivateMedia(
                             mediaNodeName,
                             carteForMediaNode(nodeName, carte, mediaNodeName),
@@ -392,16 +406,17 @@ public class MediaManager {
                             info.getGrant()
                         )
                         : null;
+                } catch (MoeraNodeException e) {
+                    throw new MoeraNodeUncheckedException(e);
                 }
-                if (mediaFile != null) {
-                    mediaPreviewSaver.save(mediaFile.getId(), mediaNodeName, mediaId);
-                } else {
-                    mediaPreviewSaver.save(null, null, null);
-                }
-            } catch (MoeraNodeException e) {
-                throw new MoeraNodeUncheckedException(e);
-            }
-        });
+            });
+        }
+        if (mediaFile != null) {
+            String mediaFileId = mediaFile.getId();
+            work.add(() -> mediaPreviewSaver.save(mediaFileId, mediaNodeName, mediaId));
+        } else {
+            work.add(() -> mediaPreviewSaver.save(null, null, null));
+        }
     }
 
 }
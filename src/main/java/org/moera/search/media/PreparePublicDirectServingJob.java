@@ -34,7 +34,7 @@ public class PreparePublicDirectServingJob extends StatelessJob<PreparePublicDir
     }
 
     @Override
-    protected void setParameters(String parameters, ObjectMapper objectMapper) {
+    protected void setParameters(byte[] parameters, ObjectMapper objectMapper) {
         this.parameters = objectMapper.readValue(parameters, Parameters.class);
     }
 
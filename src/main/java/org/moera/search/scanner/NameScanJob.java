@@ -105,19 +105,19 @@ public class NameScanJob extends Job<NameScanJob.Parameters, NameScanJob.State>
     }
 
     @Override
-    protected void setParameters(String parameters, ObjectMapper objectMapper) {
+    protected void setParameters(byte[] parameters, ObjectMapper objectMapper) {
         this.parameters = objectMapper.readValue(parameters, Parameters.class);
     }
 
     @Override
-    protected void setState(String state, ObjectMapper objectMapper) {
+    protected void setState(byte[] state, ObjectMapper objectMapper) {
         this.state = objectMapper.readValue(state, State.class);
     }
 
     @Override
     protected void execute() throws Exception {
         if (state.whoAmI == null) {
-            state.whoAmI = nodeApi.at(parameters.nodeName).whoAmI();
+            state.whoAmI = nodeApi.call(parameters.nodeName, node -> node.whoAmI());
             checkpoint();
         }
 
@@ -149,9 +149,11 @@ public class NameScanJob extends Job<NameScanJob.Parameters, NameScanJob.State>
         if (state.subscriberId == null) {
             var description = new SubscriberDescription();
             description.setType(SubscriptionType.SEARCH);
-            state.subscriberId = nodeApi
-                .at(parameters.nodeName, generateCarte(parameters.nodeName, Scope.SUBSCRIBE))
-                .createSubscriber(description).getId();
+            state.subscriberId = nodeApi.call(
+                parameters.nodeName,
+                generateCarte(parameters.nodeName, Scope.SUBSCRIBE),
+                node -> node.createSubscriber(description)
+            ).getId();
             checkpoint();
         }
 
@@ -176,6 +178,11 @@ public class NameScanJob extends Job<NameScanJob.Parameters, NameScanJob.State>
         database.writeNoResult(() -> nodeRepository.scanFailed(parameters.nodeName));
     }
 
+    @Override
+    protected String getTargetNodeName() {
+        return parameters.nodeName;
+    }
+
     @Override
     protected String getJobDescription() {
         return super.getJobDescription() + " for " + parameters.nodeName;
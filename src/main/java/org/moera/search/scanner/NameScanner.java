@@ -1,5 +1,6 @@
 package org.moera.search.scanner;
 
+import java.util.HashMap;
 import java.util.UUID;
 import jakarta.inject.Inject;
 
@@ -8,6 +9,7 @@ import org.moera.search.Workload;
 import org.moera.search.data.Database;
 import org.moera.search.data.NodeRepository;
 import org.moera.search.global.RequestCounter;
+import org.moera.search.job.JobPriority;
 import org.moera.search.job.Jobs;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -39,27 +41,39 @@ public class NameScanner {
 
         try (var ignored = requestCounter.allot()) {
             try (var ignored2 = database.open()) {
-                int runningCount = database.read(() -> jobs.countRunning(NameScanJob.class));
+                int runningCount = jobs.countRunning(NameScanJob.class);
                 if (runningCount >= Workload.NAME_SCANNERS_MAX_JOBS) {
                     return;
                 }
-                var names = database.read(() ->
-                    nodeRepository.findNamesToScan(Workload.NAME_SCANNERS_MAX_JOBS - runningCount)
-                );
+                // At most runningCount of the names are being scanned already
+                var names = database.read(() -> nodeRepository.findNamesToScan(Workload.NAME_SCANNERS_MAX_JOBS));
+                var started = new HashMap<String, UUID>();
                 for (var name : names) {
-                    if (Rules.ANONYMOUS_NODE_NAME.equals(name)) {
+                    if (runningCount + started.size() >= Workload.NAME_SCANNERS_MAX_JOBS) {
+                        break;
+                    }
+                    if (Rules.ANONYMOUS_NODE_NAME.equals(name) || jobs.isRunningFor(NameScanJob.class, name)) {
                         continue;
                     }
                     log.debug("Starting scanning of {}", name);
                     try {
-                        UUID jobId = jobs.run(NameScanJob.class, new NameScanJob.Parameters(name));
+                        UUID jobId = jobs.run(NameScanJob.class, new NameScanJob.Parameters(name), JobPriority.BULK);
                         if (jobId != null) {
-                            database.writeNoResult(() -> nodeRepository.assignScanJob(name, jobId));
+                            started.put(name, jobId);
                         }
                     } catch (Exception e) {
                         log.error("Error starting scanning of {}", name, e);
                     }
                 }
+                // Job nodes must exist in the database before they can be assigned
+                jobs.flush();
+                started.forEach((name, jobId) -> {
+                    try {
+                        database.writeNoResult(() -> nodeRepository.assignScanJob(name, jobId));
+                    } catch (Exception e) {
+                        log.error("Error assigning scanning job to {}", name, e);
+                    }
+                });
             }
         }
     }
@@ -2,9 +2,19 @@ package org.moera.search.scanner;
 
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
 import jakarta.inject.Inject;
 
 import org.moera.search.Workload;
@@ -14,6 +24,7 @@ import org.moera.search.data.PendingUpdate;
 import org.moera.search.data.PendingUpdateRepository;
 import org.moera.search.data.UpdateQueueInitializedEvent;
 import org.moera.search.global.RequestCounter;
+import org.moera.search.job.JobKeyReleasedEvent;
 import org.moera.search.job.Jobs;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -25,12 +36,58 @@ import org.springframework.stereotype.Component;
 @Component
 public class UpdateQueue {
 
+    private static final class Entry {
+
+        public final long seq;
+        public final PendingUpdate<?> update;
+        public String parkedOn;
+
+        Entry(long seq, PendingUpdate<?> update) {
+            this.seq = seq;
+            this.update = update;
+        }
+
+    }
+
     private static final Logger log = LoggerFactory.getLogger(UpdateQueue.class);
 
     private static final Duration UPDATE_TIMEOUT = Duration.ofHours(6);
+    private static final Comparator<Entry> DISPATCH_ORDER =
+        Comparator.comparing((Entry e) -> e.update.priority()).thenComparingLong(e -> e.seq);
 
-    private List<PendingUpdate<?>> queue = new ArrayList<>();
+    private long nextSeq;
+    // All updates in the order of arrival
+    private final Map<UUID, Entry> all = new LinkedHashMap<>();
+    // All updates in the order of creation, updates loaded from the database may arrive after the newer ones
+    private final NavigableSet<Entry> byCreatedAt = new TreeSet<>(
+        Comparator.comparing((Entry e) -> e.update.getCreatedAt()).thenComparingLong(e -> e.seq)
+    );
+    // The latest update for every coalesce key
+    private final Map<String, Entry> byCoalesceKey = new HashMap<>();
+    // Updates grouped by the key of the job they start, in the order of arrival
+    private final Map<String, Deque<Entry>> byJobKey = new HashMap<>();
+    // Updates blocked by a running job or by an earlier update, grouped by the key they wait for
+    private final Map<String, Set<Entry>> parked = new HashMap<>();
+    // Updates that are not blocked by anything and may be started, interactive ones first
+    private final NavigableSet<Entry> ready = new TreeSet<>(DISPATCH_ORDER);
+    // Updates that are not blocked, but not prepared yet
+    private final NavigableSet<Entry> unprepared = new TreeSet<>(DISPATCH_ORDER);
     private final Object lock = new Object();
+    private Entry dispatching;
+    // Updates that started jobs, they are deleted after the jobs are stored, so they are not lost if the process
+    // stops in between. Used by the refresh thread only.
+    private final List<UUID> startedUnflushed = new ArrayList<>();
+    private boolean signalled;
+    private final Object signal = new Object();
+    // Stored updates created before the start, loaded page by page
+    private final long backlogBefore = System.currentTimeMillis();
+    private long backlogCreatedAt = Long.MIN_VALUE;
+    private String backlogId = "";
+    private volatile boolean backlogLoaded;
+    // Stored updates created up to this moment may have no job key saved
+    private long backlogWithoutJobKeyUntil = Long.MIN_VALUE;
+    // Updates offered while the backlog is not loaded completely, that may have to wait for the stored ones
+    private final List<PendingUpdate<?>> behindBacklog = new ArrayList<>();
 
     @Inject
     private RequestCounter requestCounter;
@@ -41,6 +98,9 @@ public class UpdateQueue {
     @Inject
     private PendingUpdateRepository pendingUpdateRepository;
 
+    @Inject
+    private UpdateQueueWriter updateQueueWriter;
+
     @Inject
     private Jobs jobs;
 
@@ -55,11 +115,23 @@ public class UpdateQueue {
         try (var ignored = requestCounter.allot()) {
             try (var ignored2 = database.open()) {
                 log.info("Loading the queue of updates");
+                List<PendingUpdate<?>> offered;
                 synchronized (lock) {
-                    var stored = database.read(() -> pendingUpdateRepository.findAll());
-                    stored.addAll(queue);
-                    queue = stored;
+                    offered = new ArrayList<>(behindBacklog);
+                    for (var entry : all.values()) {
+                        offered.add(entry.update);
+                    }
+                    clear();
                 }
+                backlogWithoutJobKeyUntil = database.read(pendingUpdateRepository::findLastCreatedAtWithoutJobKey);
+                loadBacklog();
+                var changed = new ArrayList<PendingUpdate<?>>();
+                var superseded = new ArrayList<PendingUpdate<?>>();
+                synchronized (lock) {
+                    offered.forEach(update -> addOrHold(update, changed, superseded));
+                }
+                rewrite(changed, superseded);
+                releaseBehindBacklog();
             }
         }
 
@@ -69,21 +141,317 @@ public class UpdateQueue {
     }
 
     public void offer(PendingUpdate<?> update) {
+        offerAll(List.of(update));
+    }
+
+    // Returns after all the updates are stored in the database
+    public void offerAll(List<PendingUpdate<?>> updates) {
+        updates.forEach(autowireCapableBeanFactory::autowireBean);
+        var changed = new ArrayList<PendingUpdate<?>>(updates);
+        var superseded = new ArrayList<PendingUpdate<?>>();
+        synchronized (lock) {
+            updates.forEach(update -> addOrHold(update, changed, superseded));
+        }
+        superseded.forEach(UpdateQueue::logSuperseded);
+        updateQueueWriter.create(changed, superseded);
+        if (!backlogLoaded) {
+            signal();
+        }
+    }
+
+    // Updates stored before the start are loaded in pages, while the number of updates in memory is below the limit.
+    // The rest stay in the database until the queue is drained. Updates offered after the start are always kept
+    // in memory, but those that wait for job keys of the stored updates not loaded yet are held behind the backlog.
+    private void loadBacklog() {
+        while (!backlogLoaded && size() < Workload.UPDATE_QUEUE_MAX_LOADED) {
+            var page = database.read(() ->
+                pendingUpdateRepository.findPage(
+                    backlogBefore, backlogCreatedAt, backlogId, Workload.UPDATE_QUEUE_LOAD_PAGE_SIZE
+                )
+            );
+            var changed = new ArrayList<PendingUpdate<?>>();
+            var superseded = new ArrayList<PendingUpdate<?>>();
+            synchronized (lock) {
+                page.updates().forEach(update -> add(update, changed, superseded));
+            }
+            rewrite(changed, superseded);
+            backlogCreatedAt = page.lastCreatedAt();
+            backlogId = page.lastId();
+            backlogLoaded = page.size() < Workload.UPDATE_QUEUE_LOAD_PAGE_SIZE;
+        }
+        if (!backlogLoaded) {
+            log.info("Too many stored updates, the rest will be loaded later");
+        }
+    }
+
+    private void rewrite(List<PendingUpdate<?>> changed, List<PendingUpdate<?>> superseded) {
+        superseded.forEach(UpdateQueue::logSuperseded);
+        updateQueueWriter.rewrite(changed, superseded);
+    }
+
+    private static void logSuperseded(PendingUpdate<?> update) {
+        log.debug("Update {} is superseded by a newer one", update.getId());
+    }
+
+    private void addOrHold(PendingUpdate<?> update, List<PendingUpdate<?>> changed, List<PendingUpdate<?>> superseded) {
+        if (!backlogLoaded && !getBacklogKeys(update).isEmpty()) {
+            behindBacklog.add(update);
+        } else {
+            add(update, changed, superseded);
+        }
+    }
+
+    // Job keys the update should wait for, that may be found among the stored updates
+    private static List<String> getBacklogKeys(PendingUpdate<?> update) {
+        List<String> waitJobKeys = update.waitJobKeys();
+        if (waitJobKeys == null) {
+            return List.of();
+        }
+        return waitJobKeys.stream().filter(key -> key != null && !key.endsWith("*")).toList();
+    }
+
+    // The held updates are added to the queue when no stored update not loaded yet has a job key they wait for,
+    // so they arrive after the stored updates they should wait for
+    private void releaseBehindBacklog() {
+        List<PendingUpdate<?>> waiting;
+        synchronized (lock) {
+            if (behindBacklog.isEmpty()) {
+                return;
+            }
+            waiting = new ArrayList<>(behindBacklog);
+        }
+
+        Set<String> blocked;
+        if (backlogLoaded) {
+            blocked = Set.of();
+        } else if (backlogWithoutJobKeyUntil != Long.MIN_VALUE && backlogCreatedAt <= backlogWithoutJobKeyUntil) {
+            return;
+        } else {
+            var jobKeys = waiting.stream().flatMap(update -> getBacklogKeys(update).stream()).distinct().toList();
+            blocked = database.read(() ->
+                pendingUpdateRepository.findJobKeysInBacklog(jobKeys, backlogBefore, backlogCreatedAt, backlogId)
+            );
+        }
+
+        var changed = new ArrayList<PendingUpdate<?>>();
+        var superseded = new ArrayList<PendingUpdate<?>>();
         synchronized (lock) {
-            queue.add(update);
+            // The updates held after the list was copied are checked next time
+            var iterator = behindBacklog.iterator();
+            for (int i = 0; i < waiting.size(); i++) {
+                var update = iterator.next();
+                if (getBacklogKeys(update).stream().noneMatch(blocked::contains)) {
+                    iterator.remove();
+                    add(update, changed, superseded);
+                }
+            }
+        }
+        rewrite(changed, superseded);
+    }
+
+    @EventListener(JobKeyReleasedEvent.class)
+    public void jobKeyReleased(JobKeyReleasedEvent event) {
+        String jobKey = event.getJobKey();
+        synchronized (lock) {
+            wake(jobKey);
+            for (int i = 0; i <= jobKey.length(); i++) {
+                wake(jobKey.substring(0, i) + "*");
+            }
+        }
+    }
+
+    private void clear() {
+        all.clear();
+        byCoalesceKey.clear();
+        byJobKey.clear();
+        byCreatedAt.clear();
+        parked.clear();
+        ready.clear();
+        unprepared.clear();
+        behindBacklog.clear();
+    }
+
+    // The updates that absorbed other ones are added to the changed list, their stored copies must be rewritten
+    private void add(PendingUpdate<?> update, List<PendingUpdate<?>> changed, List<PendingUpdate<?>> superseded) {
+        if (all.containsKey(update.getId())) {
+            // Updates offered before the start may be loaded from the database as well
+            return;
+        }
+        String coalesceKey = update.coalesceKey();
+        if (coalesceKey != null) {
+            // An update loaded from the database may be older than the one offered recently
+            var newer = byCoalesceKey.get(coalesceKey);
+            if (newer != null && newer != dispatching && newer.update.getCreatedAt().isAfter(update.getCreatedAt())) {
+                newer.update.absorb(update);
+                changed.add(newer.update);
+                superseded.add(update);
+                return;
+            }
+        }
+        var entry = new Entry(nextSeq++, update);
+        if (coalesceKey != null) {
+            var older = byCoalesceKey.put(coalesceKey, entry);
+            if (older != null && older != dispatching) {
+                update.absorb(older.update);
+                remove(older);
+                changed.add(update);
+                superseded.add(older.update);
+            }
+        }
+        all.put(update.getId(), entry);
+        byCreatedAt.add(entry);
+        byJobKey.computeIfAbsent(update.jobKey(), k -> new ArrayDeque<>()).addLast(entry);
+        evaluate(entry);
+    }
+
+    private void remove(Entry entry) {
+        all.remove(entry.update.getId());
+        byCreatedAt.remove(entry);
+        String coalesceKey = entry.update.coalesceKey();
+        if (coalesceKey != null && byCoalesceKey.get(coalesceKey) == entry) {
+            byCoalesceKey.remove(coalesceKey);
+        }
+        ready.remove(entry);
+        unprepared.remove(entry);
+        unpark(entry);
+
+        String jobKey = entry.update.jobKey();
+        var sameKey = byJobKey.get(jobKey);
+        if (sameKey != null) {
+            boolean wasFirst = sameKey.peekFirst() == entry;
+            sameKey.remove(entry);
+            if (sameKey.isEmpty()) {
+                byJobKey.remove(jobKey);
+            }
+            if (wasFirst) {
+                wake(jobKey);
+            }
         }
-        autowireCapableBeanFactory.autowireBean(update);
-        database.writeNoResult(() -> pendingUpdateRepository.create(update));
     }
 
+    private void evaluate(Entry entry) {
+        String blockingKey = findBlockingKey(entry);
+        if (blockingKey != null) {
+            park(entry, blockingKey);
+        } else {
+            ready.add(entry);
+            signal();
+        }
+    }
+
+    private String findBlockingKey(Entry entry) {
+        List<String> waitJobKeys = entry.update.waitJobKeys();
+        if (waitJobKeys == null) {
+            return null;
+        }
+        for (String waitJobKey : waitJobKeys) {
+            if (jobs.keyExists(waitJobKey)) {
+                return waitJobKey;
+            }
+            if (!waitJobKey.endsWith("*")) {
+                var sameKey = byJobKey.get(waitJobKey);
+                if (sameKey != null && sameKey.peekFirst().seq < entry.seq) {
+                    return waitJobKey;
+                }
+            }
+        }
+        return null;
+    }
+
+    private void park(Entry entry, String waitJobKey) {
+        entry.parkedOn = waitJobKey;
+        parked.computeIfAbsent(waitJobKey, k -> new LinkedHashSet<>()).add(entry);
+    }
+
+    private void unpark(Entry entry) {
+        if (entry.parkedOn == null) {
+            return;
+        }
+        var entries = parked.get(entry.parkedOn);
+        if (entries != null) {
+            entries.remove(entry);
+            if (entries.isEmpty()) {
+                parked.remove(entry.parkedOn);
+            }
+        }
+        entry.parkedOn = null;
+    }
+
+    private void wake(String waitJobKey) {
+        var entries = parked.remove(waitJobKey);
+        if (entries == null) {
+            return;
+        }
+        for (var entry : entries) {
+            entry.parkedOn = null;
+            evaluate(entry);
+        }
+    }
+
+    // A job key release may be missed, if the job was finished while the update was being parked
+    private void wakeReleased() {
+        var released = parked.keySet().stream()
+            .filter(key -> !byJobKey.containsKey(key) && !jobs.keyExists(key))
+            .toList();
+        released.forEach(this::wake);
+    }
+
+    private int size() {
+        synchronized (lock) {
+            return all.size();
+        }
+    }
+
+    private boolean isEmpty() {
+        synchronized (lock) {
+            return all.isEmpty() && behindBacklog.isEmpty();
+        }
+    }
+
+    private void signal() {
+        synchronized (signal) {
+            signalled = true;
+            signal.notifyAll();
+        }
+    }
+
+    private void awaitSignal(long timeout) throws InterruptedException {
+        synchronized (signal) {
+            if (!signalled) {
+                signal.wait(timeout);
+            }
+            signalled = false;
+        }
+    }
+
+    // The queue is processed when an update becomes ready and periodically, to recheck updates that are not prepared
+    // and to remove expired ones. After starting the maximal number of jobs, the queue waits for the next period.
     private void refresh() {
+        long nextPeriodic = System.currentTimeMillis() + Workload.UPDATE_QUEUE_JOB_START_PERIOD;
+        boolean saturated = false;
         while (true) {
             try {
-                Thread.sleep(Workload.UPDATE_QUEUE_JOB_START_PERIOD);
-                if (database.isReady() && jobs.isReady() && !queue.isEmpty()) {
+                long timeout = nextPeriodic - System.currentTimeMillis();
+                if (timeout > 0) {
+                    if (saturated) {
+                        Thread.sleep(timeout);
+                    } else {
+                        awaitSignal(timeout);
+                    }
+                }
+                boolean periodic = System.currentTimeMillis() >= nextPeriodic;
+                if (periodic) {
+                    nextPeriodic = System.currentTimeMillis() + Workload.UPDATE_QUEUE_JOB_START_PERIOD;
+                }
+                saturated = false;
+                if (database.isReady() && jobs.isReady() && (!isEmpty() || !backlogLoaded)) {
                     try (var ignored = requestCounter.allot()) {
                         try (var ignored2 = database.open()) {
-                            processQueue();
+                            if (periodic) {
+                                loadBacklog();
+                            }
+                            releaseBehindBacklog();
+                            saturated = processQueue(periodic);
                         }
                     }
                 }
@@ -95,44 +463,81 @@ public class UpdateQueue {
         }
     }
 
-    private void processQueue() {
-        var busy = new HashSet<String>();
+    private boolean processQueue(boolean periodic) {
+        if (periodic) {
+            synchronized (lock) {
+                ready.addAll(unprepared);
+                unprepared.clear();
+                wakeReleased();
+            }
+        }
+
         int startedJobs = 0;
-        int i = 0;
-        while (true) {
-            PendingUpdate<?> update;
+        while (startedJobs < Workload.UPDATE_QUEUE_MAX_STARTED_JOBS) {
+            Entry entry;
             synchronized (lock) {
-                if (i >= queue.size()) {
-                    return;
+                entry = ready.pollFirst();
+                if (entry == null) {
+                    break;
                 }
-                update = queue.get(i);
-            }
-            var waitJobKeys = update.waitJobKeys();
-            boolean ready =
-                (
-                    waitJobKeys == null
-                    || waitJobKeys.stream().noneMatch(busy::contains)
-                        && database.read(() -> waitJobKeys.stream().noneMatch(jobs::keyExists))
-                )
-                && update.isPrepared();
-            if (ready) {
-                update.execute();
-                database.writeNoResult(() -> pendingUpdateRepository.deleteById(update.getId()));
-                synchronized (lock) {
-                    queue.remove(i);
+                // Something could be started since the update became ready
+                String blockingKey = findBlockingKey(entry);
+                if (blockingKey != null) {
+                    park(entry, blockingKey);
+                    continue;
                 }
-                if (++startedJobs >= Workload.UPDATE_QUEUE_MAX_STARTED_JOBS) {
-                    return;
+                dispatching = entry;
+            }
+            boolean started = false;
+            try {
+                if (entry.update.isPrepared()) {
+                    entry.update.execute();
+                    started = true;
+                    startedUnflushed.add(entry.update.getId());
                 }
-            } else if (update.getCreatedAt().plus(UPDATE_TIMEOUT).isBefore(Instant.now())) {
-                database.writeNoResult(() -> pendingUpdateRepository.deleteById(update.getId()));
+            } finally {
                 synchronized (lock) {
-                    queue.remove(i);
+                    dispatching = null;
+                    if (started) {
+                        remove(entry);
+                    } else if (all.containsKey(entry.update.getId())) {
+                        unprepared.add(entry);
+                    }
+                }
+            }
+            if (started) {
+                startedJobs++;
+            }
+        }
+
+        if (!startedUnflushed.isEmpty() && jobs.flush()) {
+            startedUnflushed.forEach(updateQueueWriter::delete);
+            startedUnflushed.clear();
+        }
+
+        if (periodic) {
+            removeExpired();
+        }
+
+        return startedJobs >= Workload.UPDATE_QUEUE_MAX_STARTED_JOBS;
+    }
+
+    private void removeExpired() {
+        Instant expiredAt = Instant.now().minus(UPDATE_TIMEOUT);
+        synchronized (lock) {
+            List<Entry> expired = new ArrayList<>();
+            for (var entry : byCreatedAt) {
+                if (!entry.update.getCreatedAt().isBefore(expiredAt)) {
+                    break;
                 }
-            } else {
-                i++;
+                if (!ready.contains(entry)) {
+                    expired.add(entry);
+                }
+            }
+            for (var entry : expired) {
+                updateQueueWriter.delete(entry.update.getId());
+                remove(entry);
             }
-            busy.add(update.jobKey());
         }
     }
 
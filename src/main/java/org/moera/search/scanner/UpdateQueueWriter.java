@@ -0,0 +1,177 @@
+package org.moera.search.scanner;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import jakarta.annotation.PreDestroy;
+import jakarta.inject.Inject;
+
+import org.moera.search.Workload;
+import org.moera.search.data.Database;
+import org.moera.search.data.DatabaseInitializedEvent;
+import org.moera.search.data.PendingUpdate;
+import org.moera.search.data.PendingUpdateRepository;
+import org.moera.search.global.RequestCounter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+// Writes pending updates to the database in groups. Creation of updates is waited for, so an update is never
+// lost after it is offered; deletions are written lazily.
+@Component
+public class UpdateQueueWriter {
+
+    private static final class Batch {
+
+        public final Map<UUID, PendingUpdate<?>> created = new LinkedHashMap<>();
+        public final Set<UUID> deleted = new LinkedHashSet<>();
+        public final CompletableFuture<Void> written = new CompletableFuture<>();
+
+        public boolean isEmpty() {
+            return created.isEmpty() && deleted.isEmpty();
+        }
+
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(UpdateQueueWriter.class);
+
+    private Batch batch = new Batch();
+    private boolean urgent;
+    private final Object lock = new Object();
+
+    @Inject
+    private RequestCounter requestCounter;
+
+    @Inject
+    private Database database;
+
+    @Inject
+    private PendingUpdateRepository pendingUpdateRepository;
+
+    @EventListener(DatabaseInitializedEvent.class)
+    public void init() {
+        Thread.ofPlatform().name("update-queue-writer").daemon().start(this::run);
+    }
+
+    // The updates are created (or rewritten, if stored already) and the superseded ones are deleted
+    // in the same transaction
+    public void create(List<PendingUpdate<?>> updates, List<PendingUpdate<?>> superseded) {
+        if (updates.isEmpty() && superseded.isEmpty()) {
+            return;
+        }
+        CompletableFuture<Void> written;
+        synchronized (lock) {
+            put(updates, superseded);
+            written = batch.written;
+            urgent = true;
+            lock.notifyAll();
+        }
+        written.join();
+    }
+
+    // Same as create(), but is not waited for
+    public void rewrite(List<PendingUpdate<?>> updates, List<PendingUpdate<?>> superseded) {
+        synchronized (lock) {
+            put(updates, superseded);
+        }
+    }
+
+    private void put(List<PendingUpdate<?>> updates, List<PendingUpdate<?>> superseded) {
+        updates.forEach(update -> batch.created.put(update.getId(), update));
+        superseded.forEach(update -> deleteInBatch(update.getId()));
+    }
+
+    public void delete(UUID id) {
+        synchronized (lock) {
+            deleteInBatch(id);
+        }
+    }
+
+    // The update may be stored already even if it is in the batch, because updates are rewritten
+    private void deleteInBatch(UUID id) {
+        batch.created.remove(id);
+        batch.deleted.add(id);
+    }
+
+    private void run() {
+        while (true) {
+            Batch current;
+            try {
+                synchronized (lock) {
+                    if (!urgent) {
+                        lock.wait(Workload.UPDATE_QUEUE_WRITE_PERIOD);
+                    }
+                    urgent = false;
+                    current = batch;
+                    batch = new Batch();
+                }
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (current.isEmpty()) {
+                current.written.complete(null);
+                continue;
+            }
+
+            try (var ignored = requestCounter.allot()) {
+                try (var ignored2 = database.open()) {
+                    write(current);
+                }
+                current.written.complete(null);
+            } catch (Exception e) {
+                log.error("Error writing pending updates, will retry", e);
+                requeue(current);
+            }
+        }
+    }
+
+    // The failed batch is merged into the next one, changes made after it take precedence. The callers keep
+    // waiting until the batch is written.
+    private void requeue(Batch failed) {
+        synchronized (lock) {
+            failed.created.forEach((id, update) -> {
+                if (!batch.deleted.contains(id)) {
+                    batch.created.putIfAbsent(id, update);
+                }
+            });
+            batch.deleted.addAll(failed.deleted);
+            batch.written.thenRun(() -> failed.written.complete(null));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        Batch current;
+        synchronized (lock) {
+            current = batch;
+            batch = new Batch();
+        }
+        if (!current.isEmpty() && database.isReady()) {
+            try (var ignored = requestCounter.allot()) {
+                try (var ignored2 = database.open()) {
+                    write(current);
+                }
+            }
+        }
+        current.written.complete(null);
+    }
+
+    private void write(Batch current) {
+        log.debug("Writing pending updates: {} created, {} deleted", current.created.size(), current.deleted.size());
+        database.writeNoResult(() -> {
+            if (!current.created.isEmpty()) {
+                pendingUpdateRepository.createAll(new ArrayList<>(current.created.values()));
+            }
+            if (!current.deleted.isEmpty()) {
+                pendingUpdateRepository.deleteAllById(new ArrayList<>(current.deleted));
+            }
+        });
+    }
+
+}
@@ -8,6 +8,7 @@ import org.moera.search.data.AttachmentRepository;
 import org.moera.search.data.CommentRepository;
 import org.moera.search.data.Database;
 import org.moera.search.data.PostingRepository;
+import org.moera.search.data.UnitOfWork;
 import org.moera.search.index.Index;
 import org.moera.search.index.LanguageAnalyzer;
 import org.springframework.stereotype.Component;
@@ -33,8 +34,8 @@ public class AttachmentIngest {
     @Inject
     private LanguageAnalyzer languageAnalyzer;
 
-    public void ingest(String nodeName, PostingInfo posting) {
-        database.writeNoResult(() -> {
+    public void ingest(String nodeName, PostingInfo posting, UnitOfWork work) {
+        work.add(() -> {
             attachmentRepository.deleteAll(nodeName, posting.getId());
             if (posting.getMedia() != null) {
                 posting.getMedia().stream()
@@ -44,8 +45,8 @@ public class AttachmentIngest {
         });
     }
 
-    public void ingest(String nodeName, CommentInfo comment) {
-        database.writeNoResult(() -> {
+    public void ingest(String nodeName, CommentInfo comment, UnitOfWork work) {
+        work.add(() -> {
             attachmentRepository.deleteAll(nodeName, comment.getPostingId(), comment.getId());
             if (comment.getMedia() != null) {
                 comment.getMedia().stream()
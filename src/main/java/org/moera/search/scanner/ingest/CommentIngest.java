@@ -10,6 +10,7 @@ import org.moera.search.data.Database;
 import org.moera.search.data.EntryRepository;
 import org.moera.search.data.PostingRepository;
 import org.moera.search.data.PublicationRepository;
+import org.moera.search.data.UnitOfWork;
 import org.moera.search.index.Index;
 import org.moera.search.index.IndexedDocument;
 import org.moera.search.index.LanguageAnalyzer;
@@ -67,25 +68,27 @@ public class CommentIngest {
     private UpdateQueue updateQueue;
 
     public void ingest(String nodeName, CommentInfo comment, Supplier<String> carteSupplier) {
-        database.writeNoResult(() -> {
-            commentRepository.createComment(nodeName, comment.getPostingId(), comment.getId());
-            postingRepository.updateRecommendationOrder(nodeName, comment.getPostingId());
-        });
-        if (!comment.getOwnerName().equals(nodeName)) {
-            nodeIngest.newNode(comment.getOwnerName());
-        }
         var waitRepliedTo = comment.getRepliedTo() != null
             ? database.read(() ->
                 !commentRepository.exists(nodeName, comment.getPostingId(), comment.getRepliedTo().getId())
             )
             : false;
+
+        var work = database.unitOfWork();
+        work.add(() -> {
+            commentRepository.createComment(nodeName, comment.getPostingId(), comment.getId());
+            postingRepository.updateRecommendationOrder(nodeName, comment.getPostingId());
+        });
+        if (!comment.getOwnerName().equals(nodeName)) {
+            nodeIngest.newNode(comment.getOwnerName(), work);
+        }
         boolean hasReactions =
             comment.getReactions() != null
             && (
                 !ObjectUtils.isEmpty(comment.getReactions().getPositive())
                 || !ObjectUtils.isEmpty(comment.getReactions().getNegative())
             );
-        database.writeNoResult(() -> {
+        work.add(() -> {
             commentRepository.assignCommentOwner(
                 nodeName, comment.getPostingId(), comment.getId(), comment.getOwnerName()
             );
@@ -98,13 +101,13 @@ public class CommentIngest {
                 commentRepository.scanReactionsSucceeded(nodeName, comment.getPostingId(), comment.getId());
             }
         });
+        favorIngest.comment(nodeName, comment, work);
 
-        var documentId = update(nodeName, comment, carteSupplier);
+        var documentId = update(nodeName, comment, carteSupplier, false, work);
         if (documentId != null) {
-            database.writeNoResult(() -> entryRepository.allocateMoment(documentId, comment.getCreatedAt()));
+            work.add(() -> entryRepository.allocateMoment(documentId, comment.getCreatedAt()));
         }
-
-        favorIngest.comment(nodeName, comment);
+        work.commit();
 
         if (waitRepliedTo) {
             updateQueue.offer(new CommentAddUpdate(nodeName, comment.getPostingId(), comment.getRepliedTo().getId()));
@@ -124,11 +127,25 @@ public class CommentIngest {
     }
 
     public String update(String nodeName, CommentInfo comment, Supplier<String> carteSupplier, boolean force) {
-        updateDatabase(nodeName, comment, carteSupplier, force);
-        return updateIndex(nodeName, comment, force);
+        var work = database.unitOfWork();
+        var documentId = update(nodeName, comment, carteSupplier, force, work);
+        work.commit();
+        return documentId;
     }
 
-    private void updateDatabase(String nodeName, CommentInfo comment, Supplier<String> carteSupplier, boolean force) {
+    // The graph is written before indexing, writes that depend on the document are left in the unit of work
+    // for the caller to commit
+    private String update(
+        String nodeName, CommentInfo comment, Supplier<String> carteSupplier, boolean force, UnitOfWork work
+    ) {
+        updateDatabase(nodeName, comment, carteSupplier, force, work);
+        work.commit();
+        return updateIndex(nodeName, comment, force, work);
+    }
+
+    private void updateDatabase(
+        String nodeName, CommentInfo comment, Supplier<String> carteSupplier, boolean force, UnitOfWork work
+    ) {
         if (!force) {
             var revision = database.read(() ->
                 commentRepository.getRevision(nodeName, comment.getPostingId(), comment.getId())
@@ -138,7 +155,7 @@ public class CommentIngest {
             }
         }
 
-        database.writeNoResult(() ->
+        work.add(() ->
             commentRepository.fillComment(nodeName, comment.getPostingId(), comment.getId(), comment)
         );
         mediaManager.downloadAndSaveAvatar(
@@ -147,10 +164,11 @@ public class CommentIngest {
             (avatarId, shape) -> {
                 commentRepository.removeAvatar(nodeName, comment.getPostingId(), comment.getId());
                 commentRepository.addAvatar(nodeName, comment.getPostingId(), comment.getId(), avatarId, shape);
-            }
+            },
+            work
         );
-        hashtagIngest.ingest(nodeName, comment);
-        attachmentIngest.ingest(nodeName, comment);
+        hashtagIngest.ingest(nodeName, comment, work);
+        attachmentIngest.ingest(nodeName, comment, work);
         mediaManager.previewAndSavePrivateMedia(
             nodeName,
             carteSupplier,
@@ -164,14 +182,20 @@ public class CommentIngest {
                         nodeName, comment.getPostingId(), comment.getId(), mediaNodeName, mediaId, mediaFileId
                     );
                 }
-            }
+            },
+            work
         );
     }
 
-    private String updateIndex(String nodeName, CommentInfo comment, boolean force) {
-        String documentId = database.read(() ->
-            commentRepository.getDocumentId(nodeName, comment.getPostingId(), comment.getId())
-        );
+    private String updateIndex(String nodeName, CommentInfo comment, boolean force, UnitOfWork work) {
+        var publications = new IndexedDocument();
+        String documentId = database.read(() -> {
+            publications.setPublishers(
+                publicationRepository.getPublishers(nodeName, comment.getPostingId(), Feed.TIMELINE)
+            );
+            publications.setNews(publicationRepository.getPublishers(nodeName, comment.getPostingId(), Feed.NEWS));
+            return commentRepository.getDocumentId(nodeName, comment.getPostingId(), comment.getId());
+        });
         if (!force) {
             var revision = documentId != null ? index.getRevision(documentId) : null;
             if (revision != null && revision.sameRevision(comment)) {
@@ -181,16 +205,12 @@ public class CommentIngest {
 
         var document = new IndexedDocument(nodeName, comment);
         languageAnalyzer.analyze(document);
-        database.readNoResult(() -> {
-            document.setPublishers(publicationRepository.getPublishers(nodeName, comment.getPostingId(), Feed.TIMELINE));
-            document.setNews(publicationRepository.getPublishers(nodeName, comment.getPostingId(), Feed.NEWS));
-        });
+        document.setPublishers(publications.getPublishers());
+        document.setNews(publications.getNews());
 
         if (documentId == null) {
             var id = index.index(document);
-            database.writeNoResult(() ->
-                commentRepository.setDocumentId(nodeName, comment.getPostingId(), comment.getId(), id)
-            );
+            work.add(() -> commentRepository.setDocumentId(nodeName, comment.getPostingId(), comment.getId(), id));
             documentId = id;
         } else {
             index.update(documentId, document);
@@ -11,6 +11,7 @@ import org.moera.search.data.Database;
 import org.moera.search.data.FavorRepository;
 import org.moera.search.data.FavorType;
 import org.moera.search.data.PostingRepository;
+import org.moera.search.data.UnitOfWork;
 import org.moera.search.global.RequestCounter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -58,11 +59,11 @@ public class FavorIngest {
         database.writeNoResult(() -> favorRepository.deleteAllPublicationFavors(nodeName, postingId));
     }
 
-    public void comment(String nodeName, CommentInfo comment) {
+    public void comment(String nodeName, CommentInfo comment, UnitOfWork work) {
         Instant createdAt = Instant.ofEpochSecond(comment.getCreatedAt());
         Instant deadline = createdAt.plus(FavorType.COMMENT.getDecayHours(), ChronoUnit.HOURS);
         if (!deadline.isBefore(Instant.now())) {
-            database.writeNoResult(() ->
+            work.add(() ->
                 favorRepository.createCommentFavors(
                     nodeName, comment.getPostingId(), comment.getId(), createdAt.toEpochMilli(), deadline.toEpochMilli()
                 )
@@ -74,7 +75,7 @@ public class FavorIngest {
         }
         Instant replyDeadline = createdAt.plus(FavorType.REPLY_TO_COMMENT.getDecayHours(), ChronoUnit.HOURS);
         if (!replyDeadline.isBefore(Instant.now())) {
-            database.writeNoResult(() ->
+            work.add(() ->
                 favorRepository.createRepliedToFavor(
                     nodeName, comment.getPostingId(), comment.getId(), createdAt.toEpochMilli(),
                     replyDeadline.toEpochMilli()
@@ -144,14 +145,14 @@ public class FavorIngest {
         database.writeNoResult(() -> favorRepository.deleteAllReactionsInComments(nodeName, postingId));
     }
 
-    public void novice(String nodeName, String postingId) {
+    public void novice(String nodeName, String postingId, UnitOfWork work) {
         Instant createdAt = Instant.now();
         Instant deadline = createdAt.plus(FavorType.NOVICE.getDecayHours(), ChronoUnit.HOURS);
         if (deadline.isBefore(Instant.now())) {
             return;
         }
 
-        database.writeNoResult(() ->
+        work.add(() ->
             favorRepository.createNoviceFavors(nodeName, postingId, createdAt.toEpochMilli(), deadline.toEpochMilli())
         );
     }
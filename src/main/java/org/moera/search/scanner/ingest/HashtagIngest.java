@@ -4,8 +4,8 @@ import jakarta.inject.Inject;
 
 import org.moera.lib.node.types.CommentInfo;
 import org.moera.lib.node.types.PostingInfo;
-import org.moera.search.data.Database;
 import org.moera.search.data.HashtagRepository;
+import org.moera.search.data.UnitOfWork;
 import org.moera.search.util.BodyUtil;
 import org.springframework.stereotype.Component;
 import org.springframework.util.ObjectUtils;
@@ -13,31 +13,28 @@ import org.springframework.util.ObjectUtils;
 @Component
 public class HashtagIngest {
 
-    @Inject
-    private Database database;
-
     @Inject
     private HashtagRepository hashtagRepository;
 
-    public void ingest(String nodeName, PostingInfo posting) {
+    public void ingest(String nodeName, PostingInfo posting, UnitOfWork work) {
         var hashtags = BodyUtil.extractHashtags(posting.getBody().getText());
         if (ObjectUtils.isEmpty(hashtags)) {
             return;
         }
-        hashtags.forEach(hashtag -> database.writeIgnoreConflict(() -> hashtagRepository.createHashtag(hashtag)));
-        database.writeNoResult(() -> {
+        hashtags.forEach(hashtag -> work.add(() -> hashtagRepository.createHashtag(hashtag)));
+        work.add(() -> {
             hashtagRepository.unmark(nodeName, posting.getId());
             hashtagRepository.mark(nodeName, posting.getId(), hashtags);
         });
     }
 
-    public void ingest(String nodeName, CommentInfo comment) {
+    public void ingest(String nodeName, CommentInfo comment, UnitOfWork work) {
         var hashtags = BodyUtil.extractHashtags(comment.getBody().getText());
         if (ObjectUtils.isEmpty(hashtags)) {
             return;
         }
-        hashtags.forEach(hashtag -> database.writeIgnoreConflict(() -> hashtagRepository.createHashtag(hashtag)));
-        database.writeNoResult(() -> {
+        hashtags.forEach(hashtag -> work.add(() -> hashtagRepository.createHashtag(hashtag)));
+        work.add(() -> {
             hashtagRepository.unmark(nodeName, comment.getPostingId(), comment.getId());
             hashtagRepository.mark(nodeName, comment.getPostingId(), comment.getId(), hashtags);
         });
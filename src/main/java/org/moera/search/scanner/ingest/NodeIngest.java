@@ -1,10 +1,14 @@
 package org.moera.search.scanner.ingest;
 
+import java.util.List;
+import java.util.function.Consumer;
 import jakarta.inject.Inject;
 
 import org.moera.lib.node.types.BlockedOperation;
+import org.moera.search.Workload;
 import org.moera.search.data.Database;
 import org.moera.search.data.NodeRepository;
+import org.moera.search.data.UnitOfWork;
 import org.springframework.stereotype.Component;
 
 @Component
@@ -20,10 +24,25 @@ public class NodeIngest {
         database.writeIgnoreConflict(() -> nodeRepository.createName(nodeName));
     }
 
+    public void newNode(String nodeName, UnitOfWork work) {
+        work.add(() -> nodeRepository.createName(nodeName));
+    }
+
+    public void newNodes(List<String> nodeNames) {
+        forEachBatch(nodeNames, nodeRepository::createNames);
+    }
+
     public void friend(String nodeName, String friendName) {
         database.writeNoResult(() -> nodeRepository.addFriendship(nodeName, friendName));
     }
 
+    public void friends(String nodeName, List<String> friendNames) {
+        forEachBatch(friendNames, batch -> {
+            nodeRepository.createNames(batch);
+            nodeRepository.addFriendships(nodeName, batch);
+        });
+    }
+
     public void unfriend(String nodeName, String friendName) {
         database.writeNoResult(() -> nodeRepository.deleteFriendship(nodeName, friendName));
     }
@@ -32,6 +51,13 @@ public class NodeIngest {
         database.writeNoResult(() -> nodeRepository.addSubscription(nodeName, subscriptionName, feedName));
     }
 
+    public void subscribed(String nodeName, List<String> subscriptionNames, String feedName) {
+        forEachBatch(subscriptionNames, batch -> {
+            nodeRepository.createNames(batch);
+            nodeRepository.addSubscriptions(nodeName, batch, feedName);
+        });
+    }
+
     public void unsubscribed(String nodeName, String subscriptionName, String feedName) {
         database.writeNoResult(() -> nodeRepository.deleteSubscription(nodeName, subscriptionName, feedName));
     }
@@ -43,8 +69,26 @@ public class NodeIngest {
         });
     }
 
+    public void blocks(String nodeName, List<String> blockedNames, BlockedOperation operation) {
+        forEachBatch(blockedNames, batch -> {
+            nodeRepository.createNames(batch);
+            nodeRepository.addBlocks(nodeName, batch, operation);
+            nodeRepository.deleteCloseTo(nodeName, batch);
+        });
+    }
+
     public void unblocks(String nodeName, String blockedName, BlockedOperation operation) {
         database.writeNoResult(() -> nodeRepository.deleteBlocks(nodeName, blockedName, operation));
     }
 
+    // Every batch is written in its own transaction
+    private void forEachBatch(List<String> nodeNames, Consumer<List<String>> mutation) {
+        for (int i = 0; i < nodeNames.size(); i += Workload.NODE_INGEST_BATCH_SIZE) {
+            var batch = nodeNames.subList(i, Math.min(i + Workload.NODE_INGEST_BATCH_SIZE, nodeNames.size()));
+            var work = database.unitOfWork();
+            work.add(() -> mutation.accept(batch));
+            work.commit();
+        }
+    }
+
 }
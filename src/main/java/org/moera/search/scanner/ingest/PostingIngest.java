@@ -10,6 +10,7 @@ import org.moera.search.data.Database;
 import org.moera.search.data.EntryRepository;
 import org.moera.search.data.PostingRepository;
 import org.moera.search.data.PublicationRepository;
+import org.moera.search.data.UnitOfWork;
 import org.moera.search.global.RequestCounter;
 import org.moera.search.index.Index;
 import org.moera.search.index.IndexedDocument;
@@ -77,9 +78,10 @@ public class PostingIngest {
     public void ingest(String nodeName, PostingInfo posting, Supplier<String> carteSupplier) {
         var novice = database.read(() -> postingRepository.isNoviceOrReturned(nodeName));
 
-        database.writeNoResult(() -> postingRepository.createPosting(nodeName, posting.getId()));
+        var work = database.unitOfWork();
+        work.add(() -> postingRepository.createPosting(nodeName, posting.getId()));
         if (!posting.getOwnerName().equals(nodeName)) {
-            nodeIngest.newNode(posting.getOwnerName());
+            nodeIngest.newNode(posting.getOwnerName(), work);
         }
         boolean hasReactions =
             posting.getReactions() != null
@@ -87,7 +89,7 @@ public class PostingIngest {
                 !ObjectUtils.isEmpty(posting.getReactions().getPositive())
                 || !ObjectUtils.isEmpty(posting.getReactions().getNegative())
             );
-        database.writeNoResult(() -> {
+        work.add(() -> {
             postingRepository.assignPostingOwner(nodeName, posting.getId(), posting.getOwnerName());
             if (posting.getTotalComments() == 0) {
                 postingRepository.scanCommentsSucceeded(nodeName, posting.getId());
@@ -112,13 +114,14 @@ public class PostingIngest {
             }
         });
         if (novice) {
-            favorIngest.novice(nodeName, posting.getId());
+            favorIngest.novice(nodeName, posting.getId(), work);
         }
 
-        var documentId = update(nodeName, posting, carteSupplier);
+        var documentId = update(nodeName, posting, carteSupplier, false, work);
         if (documentId != null) {
-            database.writeNoResult(() -> entryRepository.allocateMoment(documentId, posting.getCreatedAt()));
+            work.add(() -> entryRepository.allocateMoment(documentId, posting.getCreatedAt()));
         }
+        work.commit();
 
         if (posting.getTotalComments() > 0) {
             updateQueue.offer(new CommentsScanUpdate(nodeName, posting.getId()));
@@ -133,11 +136,25 @@ public class PostingIngest {
     }
 
     public String update(String nodeName, PostingInfo posting, Supplier<String> carteSupplier, boolean force) {
-        updateDatabase(nodeName, posting, carteSupplier, force);
-        return updateIndex(nodeName, posting, force);
+        var work = database.unitOfWork();
+        var documentId = update(nodeName, posting, carteSupplier, force, work);
+        work.commit();
+        return documentId;
+    }
+
+    // The graph is written before indexing, because the document includes the publications. Writes that depend
+    // on the document are left in the unit of work for the caller to commit.
+    private String update(
+        String nodeName, PostingInfo posting, Supplier<String> carteSupplier, boolean force, UnitOfWork work
+    ) {
+        updateDatabase(nodeName, posting, carteSupplier, force, work);
+        work.commit();
+        return updateIndex(nodeName, posting, force, work);
     }
 
-    private void updateDatabase(String nodeName, PostingInfo posting, Supplier<String> carteSupplier, boolean force) {
+    private void updateDatabase(
+        String nodeName, PostingInfo posting, Supplier<String> carteSupplier, boolean force, UnitOfWork work
+    ) {
         if (!force) {
             var revision = database.read(() -> postingRepository.getRevision(nodeName, posting.getId()));
             if (revision.sameRevision(posting)) {
@@ -145,7 +162,7 @@ public class PostingIngest {
             }
         }
 
-        database.writeNoResult(() -> {
+        work.add(() -> {
             postingRepository.fillPosting(nodeName, posting.getId(), posting);
             postingRepository.updateRecommendationOrder(nodeName, posting.getId());
         });
@@ -155,10 +172,11 @@ public class PostingIngest {
             (avatarId, shape) -> {
                 postingRepository.removeAvatar(nodeName, posting.getId());
                 postingRepository.addAvatar(nodeName, posting.getId(), avatarId, shape);
-            }
+            },
+            work
         );
-        hashtagIngest.ingest(nodeName, posting);
-        attachmentIngest.ingest(nodeName, posting);
+        hashtagIngest.ingest(nodeName, posting, work);
+        attachmentIngest.ingest(nodeName, posting, work);
         mediaManager.previewAndSavePrivateMedia(
             nodeName,
             carteSupplier,
@@ -170,12 +188,18 @@ public class PostingIngest {
                 if (mediaFileId != null) {
                     postingRepository.addMediaPreview(nodeName, posting.getId(), mediaNodeName, mediaId, mediaFileId);
                 }
-            }
+            },
+            work
         );
     }
 
-    private String updateIndex(String nodeName, PostingInfo posting, boolean force) {
-        String documentId = database.read(() -> postingRepository.getDocumentId(nodeName, posting.getId()));
+    private String updateIndex(String nodeName, PostingInfo posting, boolean force, UnitOfWork work) {
+        var publications = new IndexedDocument();
+        String documentId = database.read(() -> {
+            publications.setPublishers(publicationRepository.getPublishers(nodeName, posting.getId(), Feed.TIMELINE));
+            publications.setNews(publicationRepository.getPublishers(nodeName, posting.getId(), Feed.NEWS));
+            return postingRepository.getDocumentId(nodeName, posting.getId());
+        });
         if (!force) {
             var revision = documentId != null ? index.getRevision(documentId) : null;
             if (revision != null && revision.sameRevision(posting)) {
@@ -185,14 +209,11 @@ public class PostingIngest {
 
         var document = new IndexedDocument(nodeName, posting);
         languageAnalyzer.analyze(document);
-        database.readNoResult(() -> {
-            document.setPublishers(publicationRepository.getPublishers(nodeName, posting.getId(), Feed.TIMELINE));
-            document.setNews(publicationRepository.getPublishers(nodeName, posting.getId(), Feed.NEWS));
-        });
-
+        document.setPublishers(publications.getPublishers());
+        document.setNews(publications.getNews());
         if (documentId == null) {
             var id = index.index(document);
-            database.writeNoResult(() -> postingRepository.setDocumentId(nodeName, posting.getId(), id));
+            work.add(() -> postingRepository.setDocumentId(nodeName, posting.getId(), id));
             documentId = id;
         } else {
             index.update(documentId, document);
@@ -62,9 +62,7 @@ public class CommentSignatureVerifier extends SignatureVerifier {
         if (cachedDigest != null) {
             return cachedDigest;
         }
-        var comment = nodeApi
-            .at(nodeName, carte)
-            .getComment(postingId, commentId, false);
+        var comment = nodeApi.call(nodeName, carte, node -> node.getComment(postingId, commentId, false));
         if (comment == null) {
             throw new SignatureVerificationException("Comment is not found");
         }
@@ -74,9 +72,9 @@ public class CommentSignatureVerifier extends SignatureVerifier {
             }
             return verifySignature(nodeName, comment, carte, visited);
         } else {
-            var revision = nodeApi
-                .at(nodeName, carte)
-                .getCommentRevision(postingId, commentId, revisionId);
+            var revision = nodeApi.call(
+                nodeName, carte, node -> node.getCommentRevision(postingId, commentId, revisionId)
+            );
             if (revision.getSignature() == null) {
                 throw new SignatureVerificationException("Comment revision is not signed");
             }
@@ -40,9 +40,7 @@ public class PostingSignatureVerifier extends SignatureVerifier {
         if (cachedDigest != null) {
             return cachedDigest;
         }
-        var posting = nodeApi
-            .at(nodeName, carte)
-            .getPosting(postingId, false);
+        var posting = nodeApi.call(nodeName, carte, node -> node.getPosting(postingId, false));
         if (posting == null) {
             throw new SignatureVerificationException("Posting is not found");
         }
@@ -52,9 +50,7 @@ public class PostingSignatureVerifier extends SignatureVerifier {
             }
             return verifySignature(nodeName, posting, carte);
         } else {
-            var revision = nodeApi
-                .at(nodeName, carte)
-                .getPostingRevision(postingId, revisionId);
+            var revision = nodeApi.call(nodeName, carte, node -> node.getPostingRevision(postingId, revisionId));
             if (revision.getSignature() == null) {
                 throw new SignatureVerificationException("Posting revision is not signed");
             }
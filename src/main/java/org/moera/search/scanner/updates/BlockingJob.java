@@ -68,7 +68,7 @@ public class BlockingJob extends StatelessJob<BlockingJob.Parameters> {
     }
 
     @Override
-    protected void setParameters(String parameters, ObjectMapper objectMapper) {
+    protected void setParameters(byte[] parameters, ObjectMapper objectMapper) {
         this.parameters = objectMapper.readValue(parameters, BlockingJob.Parameters.class);
     }
 
@@ -96,12 +96,12 @@ public class CommentAddJob extends Job<CommentAddJob.Parameters, CommentAddJob.S
     }
 
     @Override
-    protected void setParameters(String parameters, ObjectMapper objectMapper) {
+    protected void setParameters(byte[] parameters, ObjectMapper objectMapper) {
         this.parameters = objectMapper.readValue(parameters, Parameters.class);
     }
 
     @Override
-    protected void setState(String state, ObjectMapper objectMapper) {
+    protected void setState(byte[] state, ObjectMapper objectMapper) {
         this.state = objectMapper.readValue(state, State.class);
     }
 
@@ -127,9 +127,11 @@ public class CommentAddJob extends Job<CommentAddJob.Parameters, CommentAddJob.S
             checkpoint();
         }
 
-        var comment = nodeApi
-            .at(parameters.nodeName, generateCarte(parameters.nodeName, Scope.VIEW_CONTENT))
-            .getComment(parameters.postingId, parameters.commentId, false);
+        var comment = nodeApi.call(
+            parameters.nodeName,
+            generateCarte(parameters.nodeName, Scope.VIEW_CONTENT),
+            node -> node.getComment(parameters.postingId, parameters.commentId, false)
+        );
         if (comment != null) {
             if (comment.getSignature() == null) {
                 log.info("Comment is not signed yet, let's wait");
@@ -156,6 +158,11 @@ public class CommentAddJob extends Job<CommentAddJob.Parameters, CommentAddJob.S
         );
     }
 
+    @Override
+    protected String getTargetNodeName() {
+        return parameters.nodeName;
+    }
+
     @Override
     protected String getJobDescription() {
         return super.getJobDescription() + " for comment " + parameters.commentId
@@ -69,7 +69,7 @@ public class CommentDeleteJob extends StatelessJob<CommentDeleteJob.Parameters>
     }
 
     @Override
-    protected void setParameters(String parameters, ObjectMapper objectMapper) {
+    protected void setParameters(byte[] parameters, ObjectMapper objectMapper) {
         this.parameters = objectMapper.readValue(parameters, Parameters.class);
     }
 
@@ -71,7 +71,7 @@ public class CommentHeadingUpdateJob extends StatelessJob<CommentHeadingUpdateJo
     }
 
     @Override
-    protected void setParameters(String parameters, ObjectMapper objectMapper) {
+    protected void setParameters(byte[] parameters, ObjectMapper objectMapper) {
         this.parameters = objectMapper.readValue(parameters, CommentHeadingUpdateJob.Parameters.class);
     }
 
@@ -44,4 +44,9 @@ public class CommentHeadingUpdateUpdate extends PendingUpdate<CommentHeadingUpda
         );
     }
 
+    @Override
+    public String coalesceKey() {
+        return "heading:" + jobKey();
+    }
+
 }
@@ -93,7 +93,7 @@ public class CommentMediaTextUpdateJob extends StatelessJob<CommentMediaTextUpda
     }
 
     @Override
-    protected void setParameters(String parameters, ObjectMapper objectMapper) {
+    protected void setParameters(byte[] parameters, ObjectMapper objectMapper) {
         this.parameters = objectMapper.readValue(parameters, CommentMediaTextUpdateJob.Parameters.class);
     }
 
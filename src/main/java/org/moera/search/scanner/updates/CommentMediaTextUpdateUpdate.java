@@ -51,4 +51,9 @@ public class CommentMediaTextUpdateUpdate extends PendingUpdate<CommentMediaText
         );
     }
 
+    @Override
+    public String coalesceKey() {
+        return "media-text:" + jobKey() + ":" + getJobParameters().getMediaId();
+    }
+
 }
@@ -114,7 +114,7 @@ public class CommentMediaUpdateJob extends StatelessJob<CommentMediaUpdateJob.Pa
     }
 
     @Override
-    protected void setParameters(String parameters, ObjectMapper objectMapper) {
+    protected void setParameters(byte[] parameters, ObjectMapper objectMapper) {
         this.parameters = objectMapper.readValue(parameters, CommentMediaUpdateJob.Parameters.class);
     }
 
@@ -52,4 +52,9 @@ public class CommentMediaUpdateUpdate extends PendingUpdate<CommentMediaUpdateJo
         );
     }
 
+    @Override
+    public String coalesceKey() {
+        return "media:" + jobKey() + ":" + getJobParameters().getMediaId();
+    }
+
 }
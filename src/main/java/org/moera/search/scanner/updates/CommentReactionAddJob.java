@@ -84,7 +84,7 @@ public class CommentReactionAddJob extends StatelessJob<CommentReactionAddJob.Pa
     }
 
     @Override
-    protected void setParameters(String parameters, ObjectMapper objectMapper) {
+    protected void setParameters(byte[] parameters, ObjectMapper objectMapper) {
         this.parameters = objectMapper.readValue(parameters, Parameters.class);
     }
 
@@ -98,9 +98,11 @@ public class CommentReactionAddJob extends StatelessJob<CommentReactionAddJob.Pa
             return;
         }
 
-        var reaction = nodeApi
-            .at(parameters.nodeName, generateCarte(parameters.nodeName, Scope.VIEW_CONTENT))
-            .getCommentReaction(parameters.postingId, parameters.commentId, parameters.ownerName);
+        var reaction = nodeApi.call(
+            parameters.nodeName,
+            generateCarte(parameters.nodeName, Scope.VIEW_CONTENT),
+            node -> node.getCommentReaction(parameters.postingId, parameters.commentId, parameters.ownerName)
+        );
         if (reaction != null) {
             if (reaction.getSignature() == null) {
                 log.info("Reaction is not signed yet, let's wait");
@@ -115,6 +117,11 @@ public class CommentReactionAddJob extends StatelessJob<CommentReactionAddJob.Pa
         }
     }
 
+    @Override
+    protected String getTargetNodeName() {
+        return parameters.nodeName;
+    }
+
     @Override
     protected String getJobDescription() {
         return super.getJobDescription() + " from " + parameters.ownerName + " to comment " + parameters.commentId
@@ -75,7 +75,7 @@ public class CommentReactionDeleteJob extends StatelessJob<CommentReactionDelete
     }
 
     @Override
-    protected void setParameters(String parameters, ObjectMapper objectMapper) {
+    protected void setParameters(byte[] parameters, ObjectMapper objectMapper) {
         this.parameters = objectMapper.readValue(parameters, Parameters.class);
     }
 
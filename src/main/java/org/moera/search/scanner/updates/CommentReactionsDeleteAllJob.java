@@ -65,7 +65,7 @@ public class CommentReactionsDeleteAllJob extends StatelessJob<CommentReactionsD
     }
 
     @Override
-    protected void setParameters(String parameters, ObjectMapper objectMapper) {
+    protected void setParameters(byte[] parameters, ObjectMapper objectMapper) {
         this.parameters = objectMapper.readValue(parameters, Parameters.class);
     }
 
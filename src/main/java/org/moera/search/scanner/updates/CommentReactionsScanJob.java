@@ -94,26 +94,29 @@ public class CommentReactionsScanJob extends Job<CommentReactionsScanJob.Paramet
     public CommentReactionsScanJob() {
         state = new State();
         retryCount(5, "PT10M");
+        checkpointEvery(PAGE_SIZE, "PT30S");
     }
 
     @Override
-    protected void setParameters(String parameters, ObjectMapper objectMapper) {
+    protected void setParameters(byte[] parameters, ObjectMapper objectMapper) {
         this.parameters = objectMapper.readValue(parameters, Parameters.class);
     }
 
     @Override
-    protected void setState(String state, ObjectMapper objectMapper) {
+    protected void setState(byte[] state, ObjectMapper objectMapper) {
         this.state = objectMapper.readValue(state, State.class);
     }
 
     @Override
     protected void execute() throws Exception {
         while (state.before > 0) {
-            var reactionsSlice = nodeApi
-                .at(parameters.nodeName, generateCarte(parameters.nodeName, Scope.VIEW_CONTENT))
-                .getCommentReactionsSlice(
+            var reactionsSlice = nodeApi.call(
+                parameters.nodeName,
+                generateCarte(parameters.nodeName, Scope.VIEW_CONTENT),
+                node -> node.getCommentReactionsSlice(
                     parameters.postingId, parameters.commentId, null, null, state.before, PAGE_SIZE
-                );
+                )
+            );
             for (var reaction : reactionsSlice.getReactions()) {
                 state.before = reaction.getMoment();
                 checkpoint();
@@ -159,6 +162,11 @@ public class CommentReactionsScanJob extends Job<CommentReactionsScanJob.Paramet
         );
     }
 
+    @Override
+    protected String getTargetNodeName() {
+        return parameters.nodeName;
+    }
+
     @Override
     protected String getJobDescription() {
         return super.getJobDescription() + " for comment " + parameters.commentId
@@ -4,6 +4,7 @@ import java.util.List;
 
 import org.moera.search.data.PendingUpdate;
 import org.moera.search.job.Job;
+import org.moera.search.job.JobPriority;
 import org.moera.search.scanner.JobKeys;
 
 public class CommentReactionsScanUpdate extends PendingUpdate<CommentReactionsScanJob.Parameters> {
@@ -47,4 +48,9 @@ public class CommentReactionsScanUpdate extends PendingUpdate<CommentReactionsSc
         );
     }
 
+    @Override
+    public JobPriority priority() {
+        return JobPriority.BULK;
+    }
+
 }
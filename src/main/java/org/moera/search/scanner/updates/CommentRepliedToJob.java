@@ -67,7 +67,7 @@ public class CommentRepliedToJob extends StatelessJob<CommentRepliedToJob.Parame
     }
 
     @Override
-    protected void setParameters(String parameters, ObjectMapper objectMapper) {
+    protected void setParameters(byte[] parameters, ObjectMapper objectMapper) {
         this.parameters = objectMapper.readValue(parameters, Parameters.class);
     }
 
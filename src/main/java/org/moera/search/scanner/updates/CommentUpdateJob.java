@@ -92,7 +92,7 @@ public class CommentUpdateJob extends StatelessJob<CommentUpdateJob.Parameters>
     }
 
     @Override
-    protected void setParameters(String parameters, ObjectMapper objectMapper) {
+    protected void setParameters(byte[] parameters, ObjectMapper objectMapper) {
         this.parameters = objectMapper.readValue(parameters, Parameters.class);
     }
 
@@ -106,9 +106,11 @@ public class CommentUpdateJob extends StatelessJob<CommentUpdateJob.Parameters>
             return;
         }
 
-        var comment = nodeApi
-            .at(parameters.nodeName, generateCarte(parameters.nodeName, Scope.VIEW_CONTENT))
-            .getComment(parameters.postingId, parameters.commentId, false);
+        var comment = nodeApi.call(
+            parameters.nodeName,
+            generateCarte(parameters.nodeName, Scope.VIEW_CONTENT),
+            node -> node.getComment(parameters.postingId, parameters.commentId, false)
+        );
         if (comment != null) {
             if (comment.getSignature() == null) {
                 log.info("Comment is not signed yet, let's wait");
@@ -138,6 +140,11 @@ public class CommentUpdateJob extends StatelessJob<CommentUpdateJob.Parameters>
         }
     }
 
+    @Override
+    protected String getTargetNodeName() {
+        return parameters.nodeName;
+    }
+
     @Override
     protected String getJobDescription() {
         return super.getJobDescription() + " for comment " + parameters.commentId
@@ -51,4 +51,16 @@ public class CommentUpdateUpdate extends PendingUpdate<CommentUpdateJob.Paramete
         );
     }
 
+    @Override
+    public String coalesceKey() {
+        return "update:" + jobKey();
+    }
+
+    @Override
+    public void absorb(PendingUpdate<?> older) {
+        if (older instanceof CommentUpdateUpdate update && update.getJobParameters().isForce()) {
+            getJobParameters().setForce(true);
+        }
+    }
+
 }
@@ -98,24 +98,27 @@ public class CommentsScanJob extends Job<CommentsScanJob.Parameters, CommentsSca
     public CommentsScanJob() {
         state = new State();
         retryCount(5, "PT10M");
+        checkpointEvery(PAGE_SIZE, "PT30S");
     }
 
     @Override
-    protected void setParameters(String parameters, ObjectMapper objectMapper) {
+    protected void setParameters(byte[] parameters, ObjectMapper objectMapper) {
         this.parameters = objectMapper.readValue(parameters, Parameters.class);
     }
 
     @Override
-    protected void setState(String state, ObjectMapper objectMapper) {
+    protected void setState(byte[] state, ObjectMapper objectMapper) {
         this.state = objectMapper.readValue(state, State.class);
     }
 
     @Override
     protected void execute() throws Exception {
         while (state.before > 0) {
-            var commentsSlice = nodeApi
-                .at(parameters.nodeName, generateCarte(parameters.nodeName, Scope.VIEW_CONTENT))
-                .getCommentsSlice(parameters.postingId, null, state.before, PAGE_SIZE);
+            var commentsSlice = nodeApi.call(
+                parameters.nodeName,
+                generateCarte(parameters.nodeName, Scope.VIEW_CONTENT),
+                node -> node.getCommentsSlice(parameters.postingId, null, state.before, PAGE_SIZE)
+            );
             for (var comment : commentsSlice.getComments()) {
                 state.before = comment.getMoment();
                 state.validatedId = null;
@@ -130,7 +133,7 @@ public class CommentsScanJob extends Job<CommentsScanJob.Parameters, CommentsSca
                         continue;
                     }
                     state.validatedId = comment.getId();
-                    checkpoint();
+                    checkpointNow();
                 }
 
                 if (comment.getSignature() == null) {
@@ -177,6 +180,11 @@ public class CommentsScanJob extends Job<CommentsScanJob.Parameters, CommentsSca
         database.writeNoResult(() -> postingRepository.scanCommentsFailed(parameters.nodeName, parameters.postingId));
     }
 
+    @Override
+    protected String getTargetNodeName() {
+        return parameters.nodeName;
+    }
+
     @Override
     protected String getJobDescription() {
         return super.getJobDescription() + " for posting " + parameters.postingId + " at node " + parameters.nodeName;
@@ -4,6 +4,7 @@ import java.util.List;
 
 import org.moera.search.data.PendingUpdate;
 import org.moera.search.job.Job;
+import org.moera.search.job.JobPriority;
 import org.moera.search.scanner.JobKeys;
 
 public class CommentsScanUpdate extends PendingUpdate<CommentsScanJob.Parameters> {
@@ -39,4 +40,9 @@ public class CommentsScanUpdate extends PendingUpdate<CommentsScanJob.Parameters
         return JobKeys.postingAllComments(getJobParameters().getNodeName(), getJobParameters().getPostingId());
     }
 
+    @Override
+    public JobPriority priority() {
+        return JobPriority.BULK;
+    }
+
 }
@@ -57,7 +57,7 @@ public class FriendshipJob extends StatelessJob<FriendshipJob.Parameters> {
     }
 
     @Override
-    protected void setParameters(String parameters, ObjectMapper objectMapper) {
+    protected void setParameters(byte[] parameters, ObjectMapper objectMapper) {
         this.parameters = objectMapper.readValue(parameters, FriendshipJob.Parameters.class);
     }
 
@@ -1,12 +1,16 @@
 package org.moera.search.scanner.updates;
 
 import java.util.List;
+import java.util.stream.Collectors;
 import jakarta.inject.Inject;
 
 import org.moera.lib.node.exception.MoeraNodeApiAuthenticationException;
 import org.moera.lib.node.types.BlockedOperation;
 import org.moera.lib.node.types.BlockedUserFilter;
+import org.moera.lib.node.types.BlockedUserInfo;
+import org.moera.lib.node.types.FriendInfo;
 import org.moera.lib.node.types.Scope;
+import org.moera.lib.node.types.SubscriptionInfo;
 import org.moera.lib.node.types.SubscriptionType;
 import org.moera.search.api.NodeApi;
 import org.moera.search.data.NodeRepository;
@@ -91,12 +95,12 @@ public class PeopleScanJob extends Job<PeopleScanJob.Parameters, PeopleScanJob.S
     }
 
     @Override
-    protected void setParameters(String parameters, ObjectMapper objectMapper) {
+    protected void setParameters(byte[] parameters, ObjectMapper objectMapper) {
         this.parameters = objectMapper.readValue(parameters, Parameters.class);
     }
 
     @Override
-    protected void setState(String state, ObjectMapper objectMapper) {
+    protected void setState(byte[] state, ObjectMapper objectMapper) {
         this.state = objectMapper.readValue(state, State.class);
     }
 
@@ -104,13 +108,14 @@ public class PeopleScanJob extends Job<PeopleScanJob.Parameters, PeopleScanJob.S
     protected void execute() throws Exception {
         if (!state.scannedFriends) {
             try {
-                var friends = nodeApi
-                    .at(parameters.nodeName, generateCarte(parameters.nodeName, Scope.VIEW_PEOPLE))
-                    .getFriends(null);
-                for (var friend : friends) {
-                    nodeIngest.newNode(friend.getNodeName());
-                    nodeIngest.friend(parameters.nodeName, friend.getNodeName());
-                }
+                var friends = nodeApi.call(
+                    parameters.nodeName,
+                    generateCarte(parameters.nodeName, Scope.VIEW_PEOPLE),
+                    node -> node.getFriends(null)
+                );
+                nodeIngest.friends(
+                    parameters.nodeName, friends.stream().map(FriendInfo::getNodeName).distinct().toList()
+                );
             } catch (MoeraNodeApiAuthenticationException e) {
                 log.info("Friend list is not public for {}, skipping", parameters.nodeName);
             }
@@ -120,15 +125,18 @@ public class PeopleScanJob extends Job<PeopleScanJob.Parameters, PeopleScanJob.S
 
         if (!state.scannedSubscriptions) {
             try {
-                var subscriptions = nodeApi
-                    .at(parameters.nodeName, generateCarte(parameters.nodeName, Scope.VIEW_PEOPLE))
-                    .getSubscriptions(null, SubscriptionType.FEED);
-                for (var subscription : subscriptions) {
-                    nodeIngest.newNode(subscription.getRemoteNodeName());
-                    nodeIngest.subscribed(
-                        parameters.nodeName, subscription.getRemoteNodeName(), subscription.getRemoteFeedName()
-                    );
-                }
+                var subscriptions = nodeApi.call(
+                    parameters.nodeName,
+                    generateCarte(parameters.nodeName, Scope.VIEW_PEOPLE),
+                    node -> node.getSubscriptions(null, SubscriptionType.FEED)
+                );
+                var byFeed = subscriptions.stream().collect(Collectors.groupingBy(
+                    SubscriptionInfo::getRemoteFeedName,
+                    Collectors.mapping(SubscriptionInfo::getRemoteNodeName, Collectors.toList())
+                ));
+                byFeed.forEach((feedName, names) ->
+                    nodeIngest.subscribed(parameters.nodeName, names.stream().distinct().toList(), feedName)
+                );
             } catch (MoeraNodeApiAuthenticationException e) {
                 log.info("Subscriptions list is not public for {}, skipping", parameters.nodeName);
             }
@@ -142,17 +150,28 @@ public class PeopleScanJob extends Job<PeopleScanJob.Parameters, PeopleScanJob.S
                 filter.setBlockedOperations(
                     List.of(BlockedOperation.COMMENT, BlockedOperation.REACTION, BlockedOperation.VISIBILITY)
                 );
-                var blockedUsers = nodeApi
-                    .at(parameters.nodeName, generateCarte(parameters.nodeName, Scope.VIEW_PEOPLE))
-                    .searchBlockedUsers(filter);
-                for (var blockedUser : blockedUsers) {
-                    nodeIngest.newNode(blockedUser.getNodeName());
-                    if (blockedUser.getDeadline() == null) {
-                        nodeIngest.blocks(
-                            parameters.nodeName, blockedUser.getNodeName(), blockedUser.getBlockedOperation()
-                        );
-                    }
-                }
+                var blockedUsers = nodeApi.call(
+                    parameters.nodeName,
+                    generateCarte(parameters.nodeName, Scope.VIEW_PEOPLE),
+                    node -> node.searchBlockedUsers(filter)
+                );
+                // Temporary blocks are not recorded, but the nodes are
+                nodeIngest.newNodes(
+                    blockedUsers.stream()
+                        .filter(b -> b.getDeadline() != null)
+                        .map(BlockedUserInfo::getNodeName)
+                        .distinct()
+                        .toList()
+                );
+                var byOperation = blockedUsers.stream()
+                    .filter(b -> b.getDeadline() == null)
+                    .collect(Collectors.groupingBy(
+                        BlockedUserInfo::getBlockedOperation,
+                        Collectors.mapping(BlockedUserInfo::getNodeName, Collectors.toList())
+                    ));
+                byOperation.forEach((operation, names) ->
+                    nodeIngest.blocks(parameters.nodeName, names.stream().distinct().toList(), operation)
+                );
             } catch (MoeraNodeApiAuthenticationException e) {
                 log.info("Blocked users' list is not public for {}, skipping", parameters.nodeName);
             }
@@ -168,6 +187,11 @@ public class PeopleScanJob extends Job<PeopleScanJob.Parameters, PeopleScanJob.S
         database.writeNoResult(() -> nodeRepository.scanPeopleFailed(parameters.nodeName));
     }
 
+    @Override
+    protected String getTargetNodeName() {
+        return parameters.nodeName;
+    }
+
     @Override
     protected String getJobDescription() {
         return super.getJobDescription() + " for " + parameters.nodeName;
@@ -4,6 +4,7 @@ import java.util.List;
 
 import org.moera.search.data.PendingUpdate;
 import org.moera.search.job.Job;
+import org.moera.search.job.JobPriority;
 import org.moera.search.scanner.JobKeys;
 
 public class PeopleScanUpdate extends PendingUpdate<PeopleScanJob.Parameters> {
@@ -35,4 +36,9 @@ public class PeopleScanUpdate extends PendingUpdate<PeopleScanJob.Parameters> {
         return JobKeys.nodeRelatives(getJobParameters().getNodeName());
     }
 
+    @Override
+    public JobPriority priority() {
+        return JobPriority.BULK;
+    }
+
 }
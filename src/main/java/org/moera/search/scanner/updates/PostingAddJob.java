@@ -86,12 +86,12 @@ public class PostingAddJob extends Job<PostingAddJob.Parameters, PostingAddJob.S
     }
 
     @Override
-    protected void setParameters(String parameters, ObjectMapper objectMapper) {
+    protected void setParameters(byte[] parameters, ObjectMapper objectMapper) {
         this.parameters = objectMapper.readValue(parameters, Parameters.class);
     }
 
     @Override
-    protected void setState(String state, ObjectMapper objectMapper) {
+    protected void setState(byte[] state, ObjectMapper objectMapper) {
         this.state = objectMapper.readValue(state, State.class);
     }
 
@@ -113,9 +113,11 @@ public class PostingAddJob extends Job<PostingAddJob.Parameters, PostingAddJob.S
             checkpoint();
         }
 
-        var posting = nodeApi
-            .at(parameters.nodeName, generateCarte(parameters.nodeName, Scope.VIEW_CONTENT))
-            .getPosting(parameters.postingId, false);
+        var posting = nodeApi.call(
+            parameters.nodeName,
+            generateCarte(parameters.nodeName, Scope.VIEW_CONTENT),
+            node -> node.getPosting(parameters.postingId, false)
+        );
         if (posting != null) {
             if (posting.getSignature() == null) {
                 log.info("Posting is not signed yet, let's wait");
@@ -138,6 +140,11 @@ public class PostingAddJob extends Job<PostingAddJob.Parameters, PostingAddJob.S
         database.writeNoResult(() -> postingRepository.scanFailed(parameters.nodeName, parameters.postingId));
     }
 
+    @Override
+    protected String getTargetNodeName() {
+        return parameters.nodeName;
+    }
+
     @Override
     protected String getJobDescription() {
         return super.getJobDescription() + " for posting " + parameters.postingId + " at node " + parameters.nodeName;
@@ -58,7 +58,7 @@ public class PostingDeleteJob extends StatelessJob<PostingDeleteJob.Parameters>
     }
 
     @Override
-    protected void setParameters(String parameters, ObjectMapper objectMapper) {
+    protected void setParameters(byte[] parameters, ObjectMapper objectMapper) {
         this.parameters = objectMapper.readValue(parameters, PostingDeleteJob.Parameters.class);
     }
 
@@ -61,7 +61,7 @@ public class PostingHeadingUpdateJob extends StatelessJob<PostingHeadingUpdateJo
     }
 
     @Override
-    protected void setParameters(String parameters, ObjectMapper objectMapper) {
+    protected void setParameters(byte[] parameters, ObjectMapper objectMapper) {
         this.parameters = objectMapper.readValue(parameters, PostingHeadingUpdateJob.Parameters.class);
     }
 
@@ -38,4 +38,9 @@ public class PostingHeadingUpdateUpdate extends PendingUpdate<PostingHeadingUpda
         return JobKeys.posting(getJobParameters().getNodeName(), getJobParameters().getPostingId());
     }
 
+    @Override
+    public String coalesceKey() {
+        return "heading:" + jobKey();
+    }
+
 }
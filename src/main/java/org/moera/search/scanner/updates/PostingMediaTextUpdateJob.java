@@ -81,7 +81,7 @@ public class PostingMediaTextUpdateJob extends StatelessJob<PostingMediaTextUpda
     }
 
     @Override
-    protected void setParameters(String parameters, ObjectMapper objectMapper) {
+    protected void setParameters(byte[] parameters, ObjectMapper objectMapper) {
         this.parameters = objectMapper.readValue(parameters, PostingMediaTextUpdateJob.Parameters.class);
     }
 
@@ -41,4 +41,9 @@ public class PostingMediaTextUpdateUpdate extends PendingUpdate<PostingMediaText
         return JobKeys.posting(getJobParameters().getNodeName(), getJobParameters().getPostingId());
     }
 
+    @Override
+    public String coalesceKey() {
+        return "media-text:" + jobKey() + ":" + getJobParameters().getMediaId();
+    }
+
 }
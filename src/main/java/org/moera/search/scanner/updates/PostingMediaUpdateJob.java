@@ -104,7 +104,7 @@ public class PostingMediaUpdateJob extends StatelessJob<PostingMediaUpdateJob.Pa
     }
 
     @Override
-    protected void setParameters(String parameters, ObjectMapper objectMapper) {
+    protected void setParameters(byte[] parameters, ObjectMapper objectMapper) {
         this.parameters = objectMapper.readValue(parameters, PostingMediaUpdateJob.Parameters.class);
     }
 
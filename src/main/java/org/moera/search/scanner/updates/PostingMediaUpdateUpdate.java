@@ -44,4 +44,9 @@ public class PostingMediaUpdateUpdate extends PendingUpdate<PostingMediaUpdateJo
         return JobKeys.posting(getJobParameters().getNodeName(), getJobParameters().getPostingId());
     }
 
+    @Override
+    public String coalesceKey() {
+        return "media:" + jobKey() + ":" + getJobParameters().getMediaId();
+    }
+
 }
@@ -74,7 +74,7 @@ public class PostingReactionAddJob extends StatelessJob<PostingReactionAddJob.Pa
     }
 
     @Override
-    protected void setParameters(String parameters, ObjectMapper objectMapper) {
+    protected void setParameters(byte[] parameters, ObjectMapper objectMapper) {
         this.parameters = objectMapper.readValue(parameters, Parameters.class);
     }
 
@@ -88,9 +88,11 @@ public class PostingReactionAddJob extends StatelessJob<PostingReactionAddJob.Pa
             return;
         }
 
-        var reaction = nodeApi
-            .at(parameters.nodeName, generateCarte(parameters.nodeName, Scope.VIEW_CONTENT))
-            .getPostingReaction(parameters.postingId, parameters.ownerName);
+        var reaction = nodeApi.call(
+            parameters.nodeName,
+            generateCarte(parameters.nodeName, Scope.VIEW_CONTENT),
+            node -> node.getPostingReaction(parameters.postingId, parameters.ownerName)
+        );
         if (reaction != null) {
             if (reaction.getSignature() == null) {
                 log.info("Reaction is not signed yet, let's wait");
@@ -105,6 +107,11 @@ public class PostingReactionAddJob extends StatelessJob<PostingReactionAddJob.Pa
         }
     }
 
+    @Override
+    protected String getTargetNodeName() {
+        return parameters.nodeName;
+    }
+
     @Override
     protected String getJobDescription() {
         return super.getJobDescription() + " from " + parameters.ownerName + " to posting " + parameters.postingId
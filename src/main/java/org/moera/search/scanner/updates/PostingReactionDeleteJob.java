@@ -65,7 +65,7 @@ public class PostingReactionDeleteJob extends StatelessJob<PostingReactionDelete
     }
 
     @Override
-    protected void setParameters(String parameters, ObjectMapper objectMapper) {
+    protected void setParameters(byte[] parameters, ObjectMapper objectMapper) {
         this.parameters = objectMapper.readValue(parameters, Parameters.class);
     }
 
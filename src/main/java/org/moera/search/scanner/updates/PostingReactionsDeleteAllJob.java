@@ -55,7 +55,7 @@ public class PostingReactionsDeleteAllJob extends StatelessJob<PostingReactionsD
     }
 
     @Override
-    protected void setParameters(String parameters, ObjectMapper objectMapper) {
+    protected void setParameters(byte[] parameters, ObjectMapper objectMapper) {
         this.parameters = objectMapper.readValue(parameters, Parameters.class);
     }
 
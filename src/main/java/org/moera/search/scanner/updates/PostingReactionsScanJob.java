@@ -84,24 +84,27 @@ public class PostingReactionsScanJob extends Job<PostingReactionsScanJob.Paramet
     public PostingReactionsScanJob() {
         state = new State();
         retryCount(5, "PT10M");
+        checkpointEvery(PAGE_SIZE, "PT30S");
     }
 
     @Override
-    protected void setParameters(String parameters, ObjectMapper objectMapper) {
+    protected void setParameters(byte[] parameters, ObjectMapper objectMapper) {
         this.parameters = objectMapper.readValue(parameters, Parameters.class);
     }
 
     @Override
-    protected void setState(String state, ObjectMapper objectMapper) {
+    protected void setState(byte[] state, ObjectMapper objectMapper) {
         this.state = objectMapper.readValue(state, State.class);
     }
 
     @Override
     protected void execute() throws Exception {
         while (state.before > 0) {
-            var reactionsSlice = nodeApi
-                .at(parameters.nodeName, generateCarte(parameters.nodeName, Scope.VIEW_CONTENT))
-                .getPostingReactionsSlice(parameters.postingId, null, null, state.before, PAGE_SIZE);
+            var reactionsSlice = nodeApi.call(
+                parameters.nodeName,
+                generateCarte(parameters.nodeName, Scope.VIEW_CONTENT),
+                node -> node.getPostingReactionsSlice(parameters.postingId, null, null, state.before, PAGE_SIZE)
+            );
             for (var reaction : reactionsSlice.getReactions()) {
                 state.before = reaction.getMoment();
                 checkpoint();
@@ -145,6 +148,11 @@ public class PostingReactionsScanJob extends Job<PostingReactionsScanJob.Paramet
         database.writeNoResult(() -> postingRepository.scanReactionsFailed(parameters.nodeName, parameters.postingId));
     }
 
+    @Override
+    protected String getTargetNodeName() {
+        return parameters.nodeName;
+    }
+
     @Override
     protected String getJobDescription() {
         return super.getJobDescription() + " for posting " + parameters.postingId + " at node " + parameters.nodeName;
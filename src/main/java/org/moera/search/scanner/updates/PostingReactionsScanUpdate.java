@@ -4,6 +4,7 @@ import java.util.List;
 
 import org.moera.search.data.PendingUpdate;
 import org.moera.search.job.Job;
+import org.moera.search.job.JobPriority;
 import org.moera.search.scanner.JobKeys;
 
 public class PostingReactionsScanUpdate extends PendingUpdate<PostingReactionsScanJob.Parameters> {
@@ -39,4 +40,9 @@ public class PostingReactionsScanUpdate extends PendingUpdate<PostingReactionsSc
         return JobKeys.postingAllReactions(getJobParameters().getNodeName(), getJobParameters().getPostingId());
     }
 
+    @Override
+    public JobPriority priority() {
+        return JobPriority.BULK;
+    }
+
 }
@@ -83,7 +83,7 @@ public class PostingUpdateJob extends StatelessJob<PostingUpdateJob.Parameters>
     }
 
     @Override
-    protected void setParameters(String parameters, ObjectMapper objectMapper) {
+    protected void setParameters(byte[] parameters, ObjectMapper objectMapper) {
         this.parameters = objectMapper.readValue(parameters, PostingUpdateJob.Parameters.class);
     }
 
@@ -95,9 +95,11 @@ public class PostingUpdateJob extends StatelessJob<PostingUpdateJob.Parameters>
             return;
         }
 
-        var posting = nodeApi
-            .at(parameters.nodeName, generateCarte(parameters.nodeName, Scope.VIEW_CONTENT))
-            .getPosting(parameters.postingId, false);
+        var posting = nodeApi.call(
+            parameters.nodeName,
+            generateCarte(parameters.nodeName, Scope.VIEW_CONTENT),
+            node -> node.getPosting(parameters.postingId, false)
+        );
         if (posting != null) {
             if (posting.getSignature() == null) {
                 log.info("Posting is not signed yet, let's wait");
@@ -125,6 +127,11 @@ public class PostingUpdateJob extends StatelessJob<PostingUpdateJob.Parameters>
         }
     }
 
+    @Override
+    protected String getTargetNodeName() {
+        return parameters.nodeName;
+    }
+
     @Override
     protected String getJobDescription() {
         return super.getJobDescription() + " for posting " + parameters.postingId + " at node " + parameters.nodeName;
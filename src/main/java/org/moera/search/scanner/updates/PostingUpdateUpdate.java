@@ -43,4 +43,16 @@ public class PostingUpdateUpdate extends PendingUpdate<PostingUpdateJob.Paramete
         return JobKeys.posting(getJobParameters().getNodeName(), getJobParameters().getPostingId());
     }
 
+    @Override
+    public String coalesceKey() {
+        return "update:" + jobKey();
+    }
+
+    @Override
+    public void absorb(PendingUpdate<?> older) {
+        if (older instanceof PostingUpdateUpdate update && update.getJobParameters().isForce()) {
+            getJobParameters().setForce(true);
+        }
+    }
+
 }
@@ -89,7 +89,7 @@ public class PublicationAddJob extends StatelessJob<PublicationAddJob.Parameters
     }
 
     @Override
-    protected void setParameters(String parameters, ObjectMapper objectMapper) {
+    protected void setParameters(byte[] parameters, ObjectMapper objectMapper) {
         this.parameters = objectMapper.readValue(parameters, PublicationAddJob.Parameters.class);
     }
 
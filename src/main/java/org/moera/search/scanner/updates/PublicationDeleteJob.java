@@ -57,7 +57,7 @@ public class PublicationDeleteJob extends StatelessJob<PublicationDeleteJob.Para
     }
 
     @Override
-    protected void setParameters(String parameters, ObjectMapper objectMapper) {
+    protected void setParameters(byte[] parameters, ObjectMapper objectMapper) {
         this.parameters = objectMapper.readValue(parameters, PublicationDeleteJob.Parameters.class);
     }
 
@@ -97,7 +97,7 @@ public class SheriffOrderJob extends StatelessJob<SheriffOrderJob.Parameters> {
     }
 
     @Override
-    protected void setParameters(String parameters, ObjectMapper objectMapper) {
+    protected void setParameters(byte[] parameters, ObjectMapper objectMapper) {
         this.parameters = objectMapper.readValue(parameters, SheriffOrderJob.Parameters.class);
     }
 
@@ -1,9 +1,11 @@
 package org.moera.search.scanner.updates;
 
+import java.util.ArrayList;
 import jakarta.inject.Inject;
 
 import org.moera.search.api.NodeApi;
 import org.moera.search.data.NodeRepository;
+import org.moera.search.data.PendingUpdate;
 import org.moera.search.job.Job;
 import org.moera.search.scanner.UpdateQueue;
 import org.moera.search.scanner.ingest.SheriffMarkIngest;
@@ -77,15 +79,16 @@ public class SheriffScanJob extends Job<SheriffScanJob.Parameters, SheriffScanJo
     public SheriffScanJob() {
         state = new SheriffScanJob.State();
         retryCount(5, "PT10M");
+        checkpointEvery(PAGE_SIZE, "PT30S");
     }
 
     @Override
-    protected void setParameters(String parameters, ObjectMapper objectMapper) {
+    protected void setParameters(byte[] parameters, ObjectMapper objectMapper) {
         this.parameters = objectMapper.readValue(parameters, SheriffScanJob.Parameters.class);
     }
 
     @Override
-    protected void setState(String state, ObjectMapper objectMapper) {
+    protected void setState(byte[] state, ObjectMapper objectMapper) {
         this.state = objectMapper.readValue(state, SheriffScanJob.State.class);
     }
 
@@ -99,18 +102,17 @@ public class SheriffScanJob extends Job<SheriffScanJob.Parameters, SheriffScanJo
 
         if (!state.ordersScanned) {
             while (state.after < SafeInteger.MAX_VALUE) {
-                var ordersSlice = nodeApi
-                    .at(parameters.nodeName)
-                    .getRemoteSheriffOrdersSlice(state.after, null, PAGE_SIZE);
+                var ordersSlice = nodeApi.call(
+                    parameters.nodeName, node -> node.getRemoteSheriffOrdersSlice(state.after, null, PAGE_SIZE)
+                );
+                var updates = new ArrayList<PendingUpdate<?>>();
                 for (var order : ordersSlice.getOrders()) {
-                    updateQueue.offer(new SheriffOrderUpdate(
+                    updates.add(new SheriffOrderUpdate(
                         Boolean.TRUE.equals(order.getDelete()), null, order.getNodeName(), order.getPostingId(),
                         order.getCommentId(), parameters.nodeName
                     ));
-
-                    state.after = order.getMoment();
-                    checkpoint();
                 }
+                updateQueue.offerAll(updates);
                 state.after = ordersSlice.getBefore();
                 checkpoint();
 
@@ -121,21 +123,21 @@ public class SheriffScanJob extends Job<SheriffScanJob.Parameters, SheriffScanJo
 
             state.ordersScanned = true;
             state.after = Long.MIN_VALUE;
-            checkpoint();
+            checkpointNow();
         }
 
         while (state.after < SafeInteger.MAX_VALUE) {
-            var userListSlice = nodeApi
-                .at(parameters.nodeName)
-                .getUserListSlice(SheriffMarkIngest.SHERIFF_USER_LIST_HIDE, state.after, null, PAGE_SIZE);
+            var userListSlice = nodeApi.call(
+                parameters.nodeName,
+                node -> node.getUserListSlice(SheriffMarkIngest.SHERIFF_USER_LIST_HIDE, state.after, null, PAGE_SIZE)
+            );
+            var updates = new ArrayList<PendingUpdate<?>>();
             for (var item : userListSlice.getItems()) {
-                updateQueue.offer(new SheriffOrderUpdate(
+                updates.add(new SheriffOrderUpdate(
                     false, item.getNodeName(), null, null, null, parameters.nodeName
                 ));
-
-                state.after = item.getMoment();
-                checkpoint();
             }
+            updateQueue.offerAll(updates);
             state.after = userListSlice.getBefore();
             checkpoint();
 
@@ -153,6 +155,11 @@ public class SheriffScanJob extends Job<SheriffScanJob.Parameters, SheriffScanJo
         database.writeNoResult(() -> nodeRepository.scanSheriffFailed(parameters.nodeName));
     }
 
+    @Override
+    protected String getTargetNodeName() {
+        return parameters.nodeName;
+    }
+
     @Override
     protected String getJobDescription() {
         return super.getJobDescription() + " for " + parameters.nodeName;
@@ -67,7 +67,7 @@ public class SubscriptionJob extends StatelessJob<SubscriptionJob.Parameters> {
     }
 
     @Override
-    protected void setParameters(String parameters, ObjectMapper objectMapper) {
+    protected void setParameters(byte[] parameters, ObjectMapper objectMapper) {
         this.parameters = objectMapper.readValue(parameters, SubscriptionJob.Parameters.class);
     }
 
@@ -99,24 +99,27 @@ public class TimelineScanJob extends Job<TimelineScanJob.Parameters, TimelineSca
     public TimelineScanJob() {
         state = new State();
         retryCount(5, "PT10M");
+        checkpointEvery(PAGE_SIZE, "PT30S");
     }
 
     @Override
-    protected void setParameters(String parameters, ObjectMapper objectMapper) {
+    protected void setParameters(byte[] parameters, ObjectMapper objectMapper) {
         this.parameters = objectMapper.readValue(parameters, Parameters.class);
     }
 
     @Override
-    protected void setState(String state, ObjectMapper objectMapper) {
+    protected void setState(byte[] state, ObjectMapper objectMapper) {
         this.state = objectMapper.readValue(state, State.class);
     }
 
     @Override
     protected void execute() throws Exception {
         while (state.before > 0) {
-            var feedSlice = nodeApi
-                .at(parameters.nodeName, generateCarte(parameters.nodeName, Scope.VIEW_CONTENT))
-                .getFeedSlice(Feed.TIMELINE, null, state.before, PAGE_SIZE);
+            var feedSlice = nodeApi.call(
+                parameters.nodeName,
+                generateCarte(parameters.nodeName, Scope.VIEW_CONTENT),
+                node -> node.getFeedSlice(Feed.TIMELINE, null, state.before, PAGE_SIZE)
+            );
             for (var story : feedSlice.getStories()) {
                 state.before = story.getMoment();
                 state.validatedId = null;
@@ -137,7 +140,7 @@ public class TimelineScanJob extends Job<TimelineScanJob.Parameters, TimelineSca
                             continue;
                         }
                         state.validatedId = posting.getId();
-                        checkpoint();
+                        checkpointNow();
                     }
                     if (posting.getSignature() == null) {
                         log.info("Posting is not signed, skipping");
@@ -191,6 +194,11 @@ public class TimelineScanJob extends Job<TimelineScanJob.Parameters, TimelineSca
         database.writeNoResult(() -> nodeRepository.scanTimelineFailed(parameters.nodeName));
     }
 
+    @Override
+    protected String getTargetNodeName() {
+        return parameters.nodeName;
+    }
+
     @Override
     protected String getJobDescription() {
         return super.getJobDescription() + " for " + parameters.nodeName;
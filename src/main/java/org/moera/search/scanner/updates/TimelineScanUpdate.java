@@ -4,6 +4,7 @@ import java.util.List;
 
 import org.moera.search.data.PendingUpdate;
 import org.moera.search.job.Job;
+import org.moera.search.job.JobPriority;
 import org.moera.search.scanner.JobKeys;
 
 public class TimelineScanUpdate extends PendingUpdate<TimelineScanJob.Parameters> {
@@ -35,4 +36,9 @@ public class TimelineScanUpdate extends PendingUpdate<TimelineScanJob.Parameters
         return JobKeys.allContent(getJobParameters().getNodeName());
     }
 
+    @Override
+    public JobPriority priority() {
+        return JobPriority.BULK;
+    }
+
 }
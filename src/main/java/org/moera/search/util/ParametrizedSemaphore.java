@@ -0,0 +1,78 @@
+package org.moera.search.util;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+
+public class ParametrizedSemaphore<K> {
+
+    private static final class CountedSemaphore {
+
+        public int counter;
+        public Semaphore semaphore;
+
+        CountedSemaphore(int permits) {
+            semaphore = new Semaphore(permits, true);
+        }
+
+    }
+
+    public final class AutoRelease implements AutoCloseable {
+
+        private final K key;
+
+        public AutoRelease(K key) {
+            this.key = key;
+        }
+
+        @Override
+        public void close() {
+            if (key != null) {
+                ParametrizedSemaphore.this.release(key);
+            }
+        }
+
+    }
+
+    private final int permits;
+    private final Map<K, CountedSemaphore> semaphores = new HashMap<>();
+    private final Object mapLock = new Object();
+
+    public ParametrizedSemaphore(int permits) {
+        this.permits = permits;
+    }
+
+    public AutoRelease acquire(K key) {
+        if (key == null || permits <= 0) {
+            return new AutoRelease(null);
+        }
+
+        CountedSemaphore semaphore;
+        synchronized (mapLock) {
+            semaphore = semaphores.computeIfAbsent(key, k -> new CountedSemaphore(permits));
+            semaphore.counter++;
+        }
+        semaphore.semaphore.acquireUninterruptibly();
+
+        return new AutoRelease(key);
+    }
+
+    public void release(K key) {
+        CountedSemaphore semaphore;
+        synchronized (mapLock) {
+            semaphore = semaphores.get(key);
+            if (semaphore == null) {
+                throw new LockUnderflowException(key.toString());
+            }
+            semaphore.counter--;
+            if (semaphore.counter < 0) {
+                throw new LockUnderflowException(key.toString());
+            }
+            if (semaphore.counter == 0) {
+                semaphores.remove(key);
+            }
+        }
+        semaphore.semaphore.release();
+    }
+
+}
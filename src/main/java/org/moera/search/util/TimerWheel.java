@@ -0,0 +1,166 @@
+package org.moera.search.util;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// Hierarchical timer wheel. Every level has 64 slots, a slot of the lowest level covers one tick, a slot of every
+// next level covers the whole previous level. When the time comes to a slot of an upper level, its timers are moved
+// to the lower levels. Tasks are executed in the thread of the wheel, so they must be short.
+public class TimerWheel {
+
+    private static final class Timer {
+
+        public final long deadline; // in ticks
+        public final Runnable task;
+
+        Timer(long deadline, Runnable task) {
+            this.deadline = deadline;
+            this.task = task;
+        }
+
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(TimerWheel.class);
+
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int LEVELS = 5;
+    private static final long MAX_DELTA = (1L << (SLOT_BITS * LEVELS)) - 1;
+
+    private final Clock clock;
+    private final long tick; // ms
+    private final List<List<Deque<Timer>>> levels = new ArrayList<>();
+    private long currentTick;
+    private int size;
+    private final Object lock = new Object();
+    private volatile Thread thread;
+
+    public TimerWheel(Duration tick) {
+        this(tick, Clock.systemUTC());
+    }
+
+    TimerWheel(Duration tick, Clock clock) {
+        this.clock = clock;
+        this.tick = tick.toMillis();
+        for (int i = 0; i < LEVELS; i++) {
+            List<Deque<Timer>> slots = new ArrayList<>(SLOTS);
+            for (int j = 0; j < SLOTS; j++) {
+                slots.add(new ArrayDeque<>());
+            }
+            levels.add(slots);
+        }
+        currentTick = clock.millis() / this.tick;
+    }
+
+    public void start(String threadName) {
+        thread = Thread.ofPlatform().name(threadName).daemon().start(this::run);
+    }
+
+    // The timers that are not due yet are kept, but not executed
+    public void stop() {
+        Thread current = thread;
+        if (current != null) {
+            thread = null;
+            current.interrupt();
+        }
+    }
+
+    public void schedule(Instant at, Runnable task) {
+        long deadline = Math.ceilDiv(at.toEpochMilli(), tick);
+        synchronized (lock) {
+            if (size == 0) {
+                currentTick = Math.max(currentTick, clock.millis() / tick);
+            }
+            if (deadline <= currentTick) {
+                deadline = currentTick + 1;
+            }
+            place(new Timer(deadline, task));
+            size++;
+            lock.notifyAll();
+        }
+    }
+
+    public int size() {
+        synchronized (lock) {
+            return size;
+        }
+    }
+
+    private void place(Timer timer) {
+        long delta = timer.deadline - currentTick;
+        // Timers that are too far are placed to the last level and placed again when the level comes to them
+        long position = delta <= MAX_DELTA ? timer.deadline : currentTick + MAX_DELTA;
+        int level = 0;
+        while (level < LEVELS - 1 && Math.min(delta, MAX_DELTA) >= 1L << (SLOT_BITS * (level + 1))) {
+            level++;
+        }
+        int slot = (int) ((position >>> (SLOT_BITS * level)) & SLOT_MASK);
+        levels.get(level).get(slot).addLast(timer);
+    }
+
+    private void run() {
+        while (!Thread.currentThread().isInterrupted()) {
+            List<Timer> due = new ArrayList<>();
+            try {
+                synchronized (lock) {
+                    long now = clock.millis() / tick;
+                    if (size == 0) {
+                        // Nothing to move, the wheel jumps to the current moment when a timer is scheduled
+                        lock.wait();
+                        continue;
+                    }
+                    if (currentTick >= now) {
+                        lock.wait(tick - clock.millis() % tick);
+                        continue;
+                    }
+                    while (currentTick < now) {
+                        advance(due);
+                    }
+                    size -= due.size();
+                }
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            for (Timer timer : due) {
+                try {
+                    timer.task.run();
+                } catch (Exception e) {
+                    log.error("Error executing a timer task", e);
+                }
+            }
+        }
+    }
+
+    private void advance(List<Timer> due) {
+        currentTick++;
+        for (int level = LEVELS - 1; level > 0; level--) {
+            int shift = SLOT_BITS * level;
+            if ((currentTick & ((1L << shift) - 1)) == 0) {
+                var slot = levels.get(level).get((int) ((currentTick >>> shift) & SLOT_MASK));
+                List<Timer> timers = new ArrayList<>(slot);
+                slot.clear();
+                for (Timer timer : timers) {
+                    if (timer.deadline <= currentTick) {
+                        due.add(timer);
+                    } else {
+                        place(timer);
+                    }
+                }
+            }
+        }
+        var slot = levels.get(0).get((int) (currentTick & SLOT_MASK));
+        due.addAll(slot);
+        slot.clear();
+    }
+
+}
@@ -0,0 +1,3 @@
+MATCH (j:Job)
+WHERE j.priority IS NULL AND j.jobType ENDS WITH 'ScanJob'
+SET j.priority = 'BULK';
@@ -0,0 +1 @@
+CREATE INDEX pending_update_created_at IF NOT EXISTS FOR (pu:PendingUpdate) ON (pu.createdAt);
@@ -0,0 +1 @@
+CREATE INDEX pending_update_job_key IF NOT EXISTS FOR (pu:PendingUpdate) ON (pu.jobKey);
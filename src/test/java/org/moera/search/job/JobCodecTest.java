@@ -0,0 +1,119 @@
+package org.moera.search.job;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.moera.search.config.Config;
+import org.springframework.test.util.ReflectionTestUtils;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
+
+class JobCodecTest {
+
+    public static class Parameters {
+
+        private String nodeName;
+        private long count;
+
+        public Parameters() {
+        }
+
+        public Parameters(String nodeName, long count) {
+            this.nodeName = nodeName;
+            this.count = count;
+        }
+
+        public String getNodeName() {
+            return nodeName;
+        }
+
+        public void setNodeName(String nodeName) {
+            this.nodeName = nodeName;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public void setCount(long count) {
+            this.count = count;
+        }
+
+    }
+
+    private final ObjectMapper objectMapper = JsonMapper.builder().build();
+
+    private JobCodec createCodec(String format) {
+        var config = new Config();
+        config.getJobs().setCodec(format);
+        var codec = new JobCodec();
+        ReflectionTestUtils.setField(codec, "config", config);
+        ReflectionTestUtils.setField(codec, "objectMapper", objectMapper);
+        codec.init();
+        return codec;
+    }
+
+    private static Parameters decode(JobCodec codec, byte[] encoded) {
+        return codec.getMapper(encoded).readValue(encoded, Parameters.class);
+    }
+
+    @Test
+    void encodesInSmileByDefault() {
+        var codec = createCodec("smile");
+        byte[] encoded = codec.encode(new Parameters("alice_0", 42));
+
+        assertEquals(':', encoded[0]);
+        var decoded = decode(codec, encoded);
+        assertEquals("alice_0", decoded.getNodeName());
+        assertEquals(42, decoded.getCount());
+    }
+
+    @Test
+    void encodesInJsonWhenConfigured() {
+        var codec = createCodec("json");
+        byte[] encoded = codec.encode(new Parameters("alice_0", 42));
+
+        assertEquals('{', encoded[0]);
+        assertSame(objectMapper, codec.getMapper(encoded));
+        assertEquals(42, decode(codec, encoded).getCount());
+    }
+
+    @Test
+    void decodesJobsStoredInOtherFormat() {
+        byte[] json = createCodec("json").encode(new Parameters("alice_0", 1));
+        byte[] smile = createCodec("smile").encode(new Parameters("bob_0", 2));
+
+        var smileCodec = createCodec("smile");
+        assertEquals("alice_0", decode(smileCodec, json).getNodeName());
+        var jsonCodec = createCodec("json");
+        assertEquals("bob_0", decode(jsonCodec, smile).getNodeName());
+    }
+
+    @Test
+    void decodesShortJson() {
+        var codec = createCodec("smile");
+        byte[] encoded = "{}".getBytes(StandardCharsets.UTF_8);
+
+        assertSame(objectMapper, codec.getMapper(encoded));
+        assertNull(decode(codec, encoded).getNodeName());
+    }
+
+    @Test
+    void ignoresUnknownPropertiesInSmile() {
+        var codec = createCodec("smile");
+        byte[] encoded = codec.encode(Map.of("nodeName", "alice_0", "removed", "value"));
+
+        assertEquals("alice_0", decode(codec, encoded).getNodeName());
+    }
+
+    @Test
+    void encodesNullAsNull() {
+        assertNull(createCodec("smile").encode(null));
+    }
+
+}
@@ -0,0 +1,83 @@
+package org.moera.search.job;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+class JobIndexTest {
+
+    private static final String TYPE = "org.moera.search.scanner.NameScanJob";
+    private static final String OTHER_TYPE = "org.moera.search.scanner.updates.TimelineScanJob";
+
+    private final JobIndex index = new JobIndex();
+
+    @Test
+    void releasesKeyWithLastJob() {
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        index.add(first, TYPE, "node:alice", null);
+        index.add(second, TYPE, "node:alice", null);
+
+        assertTrue(index.exists("node:alice"));
+        assertNull(index.remove(first));
+        assertTrue(index.exists("node:alice"));
+        assertEquals("node:alice", index.remove(second));
+        assertFalse(index.exists("node:alice"));
+    }
+
+    @Test
+    void ignoresUnknownAndRepeatedJobs() {
+        UUID id = UUID.randomUUID();
+        index.add(null, TYPE, "node:alice", null);
+        index.add(id, TYPE, "node:alice", null);
+        index.add(id, TYPE, "node:alice", null);
+
+        assertEquals(1, index.countByType(TYPE));
+        assertNull(index.remove(UUID.randomUUID()));
+        assertEquals("node:alice", index.remove(id));
+        assertNull(index.remove(id));
+        assertEquals(0, index.countByType(TYPE));
+    }
+
+    @Test
+    void findsKeysByPrefix() {
+        index.add(UUID.randomUUID(), TYPE, "posting:alice:1", null);
+
+        assertTrue(index.existsByPrefix("posting:alice:"));
+        assertTrue(index.existsByPrefix(""));
+        assertFalse(index.existsByPrefix("posting:bob:"));
+        assertFalse(index.existsByPrefix("posting:alice:1:"));
+    }
+
+    @Test
+    void jobsWithoutKeyAreCountedByType() {
+        UUID id = UUID.randomUUID();
+        index.add(id, TYPE, null, null);
+        index.add(UUID.randomUUID(), OTHER_TYPE, null, null);
+
+        assertEquals(1, index.countByType(TYPE));
+        assertEquals(1, index.countByType(OTHER_TYPE));
+        assertNull(index.remove(id));
+        assertEquals(0, index.countByType(TYPE));
+    }
+
+    @Test
+    void tracksTargetsLearnedAfterLoading() {
+        UUID id = UUID.randomUUID();
+        index.add(id, TYPE, "node:alice", null);
+        assertFalse(index.isTargeted(TYPE, "alice_0"));
+
+        index.add(id, TYPE, "node:alice", "alice_0");
+        assertTrue(index.isTargeted(TYPE, "alice_0"));
+        assertFalse(index.isTargeted(OTHER_TYPE, "alice_0"));
+
+        index.remove(id);
+        assertFalse(index.isTargeted(TYPE, "alice_0"));
+    }
+
+}
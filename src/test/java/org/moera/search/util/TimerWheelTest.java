@@ -0,0 +1,160 @@
+package org.moera.search.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TimerWheelTest {
+
+    private static final class ManualClock extends Clock {
+
+        private volatile long millis;
+
+        ManualClock(long millis) {
+            this.millis = millis;
+        }
+
+        public void advanceTo(long millis) {
+            this.millis = millis;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public long millis() {
+            return millis;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+
+    }
+
+    private static final Duration TICK = Duration.ofMillis(10);
+
+    private TimerWheel timerWheel;
+
+    @BeforeEach
+    void setUp() {
+        timerWheel = new TimerWheel(TICK);
+        timerWheel.start("timer-wheel-test");
+    }
+
+    @AfterEach
+    void tearDown() {
+        timerWheel.stop();
+    }
+
+    @Test
+    void runsOverdueTaskAtOnce() throws InterruptedException {
+        var done = new CountDownLatch(1);
+        timerWheel.schedule(Instant.now().minusSeconds(60), done::countDown);
+
+        assertTrue(done.await(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void doesNotRunTaskBeforeDeadline() throws InterruptedException {
+        var done = new CountDownLatch(1);
+        Instant at = Instant.now().plusMillis(300);
+        var ranAt = new Instant[1];
+        timerWheel.schedule(at, () -> {
+            ranAt[0] = Instant.now();
+            done.countDown();
+        });
+
+        assertTrue(done.await(2, TimeUnit.SECONDS));
+        assertFalse(ranAt[0].isBefore(at));
+    }
+
+    @Test
+    void runsTasksOfLowerLevelsInOrder() throws InterruptedException {
+        // With 64 slots per level, the later timers are placed to the second level first
+        long[] delays = {1500, 20, 700, 100, 2500, 650};
+        var done = new CountDownLatch(delays.length);
+        List<Long> order = Collections.synchronizedList(new ArrayList<>());
+        Instant now = Instant.now();
+        for (long delay : delays) {
+            timerWheel.schedule(now.plusMillis(delay), () -> {
+                order.add(delay);
+                done.countDown();
+            });
+        }
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of(20L, 100L, 650L, 700L, 1500L, 2500L), order);
+        assertEquals(0, timerWheel.size());
+    }
+
+    @Test
+    void runsTasksOfAllLevelsInOrder() throws InterruptedException {
+        // The clock is moved by hand, so the timers of the upper levels do not take hours to come
+        var clock = new ManualClock(0);
+        var wheel = new TimerWheel(TICK, clock);
+        wheel.start("timer-wheel-test-all-levels");
+        try {
+            // In ticks: 64 slots of the first level, 64^2 of the second level and so on
+            long[] delays = {30_000_000L, 5, 300_000L, 100, 5_000L, 2_000_000L};
+            long[] expected = {5, 100, 5_000L, 300_000L, 2_000_000L, 30_000_000L};
+            List<Long> order = Collections.synchronizedList(new ArrayList<>());
+            Map<Long, CountDownLatch> latches = new HashMap<>();
+            for (long delay : delays) {
+                var done = new CountDownLatch(1);
+                latches.put(delay, done);
+                wheel.schedule(Instant.ofEpochMilli(delay * TICK.toMillis()), () -> {
+                    order.add(delay);
+                    done.countDown();
+                });
+            }
+
+            for (int i = 0; i < expected.length; i++) {
+                clock.advanceTo(expected[i] * TICK.toMillis());
+                assertTrue(latches.get(expected[i]).await(5, TimeUnit.SECONDS));
+                assertEquals(Arrays.stream(expected, 0, i + 1).boxed().toList(), order);
+            }
+            assertEquals(0, wheel.size());
+        } finally {
+            wheel.stop();
+        }
+    }
+
+    @Test
+    void keepsTimersBeyondTheLastLevel() throws InterruptedException {
+        var done = new CountDownLatch(1);
+        timerWheel.schedule(Instant.now().plus(Duration.ofDays(365 * 10)), () -> { });
+        timerWheel.schedule(Instant.now().plusMillis(50), done::countDown);
+
+        assertEquals(2, timerWheel.size());
+        assertTrue(done.await(1, TimeUnit.SECONDS));
+        assertEquals(1, timerWheel.size());
+    }
+
+}